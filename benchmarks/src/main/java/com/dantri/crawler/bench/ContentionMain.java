@@ -0,0 +1,29 @@
+package com.dantri.crawler.bench;
+
+import com.dantri.crawler.visited.KnownUrlBenchmark;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link KnownUrlBenchmark} at 1, 2, 4 ... N threads with the GC
+ * profiler, N = first argument or the number of cores.
+ */
+public final class ContentionMain {
+    private ContentionMain() {}
+
+    public static void main(String[] args) throws RunnerException {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int t = 1; ; t = Math.min(t * 2, max)) {
+            Options opt = new OptionsBuilder()
+                    .include(KnownUrlBenchmark.class.getSimpleName())
+                    .threads(t)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(opt).run();
+            if (t == max) break;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.dantri.crawler.bench;
+
+import com.dantri.crawler.fetch.FetchResult;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saved article pages, one per start-URL host, served without the network.
+ * <p>
+ * The bundled pages under {@code fixtures/} are synthetic but follow the
+ * extraction paths the real sites take: JSON-LD with articleBody, JSON-LD
+ * without it (falls through to the tag layer), meta + article container
+ * only, and no title at all (Boilerpipe). Point {@code -Dfixtures.dir} at a
+ * directory of real captures named {@code <host>.html} to benchmark those
+ * instead. The page URL is taken from its rel=canonical.
+ */
+public final class Fixtures {
+    /** Keep in sync with the @Param lists of the benchmarks. */
+    public static final List<String> HOSTS = List.of(
+            "dantri.com.vn", "vnexpress.net", "tuoitre.vn", "vietnamnet.vn",
+            "tienphong.vn", "thanhnien.vn", "vtcnews.vn", "danviet.vn",
+            "nhandan.vn", "www.qdnd.vn", "soha.vn", "baochinhphu.vn");
+
+    private static final Map<String, List<String>> HTML_HEADERS =
+            Map.of("Content-Type", List.of("text/html; charset=utf-8"));
+
+    private final String url;
+    private final byte[] body;
+
+    private Fixtures(String url, byte[] body) {
+        this.url = url;
+        this.body = body;
+    }
+
+    public static Fixtures load(String host) {
+        byte[] body = read(host + ".html");
+        Element canonical = Jsoup.parse(new String(body, StandardCharsets.UTF_8)).selectFirst("link[rel=canonical]");
+        String url = canonical != null ? canonical.attr("href") : "https://" + host + "/";
+        return new Fixtures(url, body);
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public byte[] body() {
+        return body;
+    }
+
+    /** A fresh 200 response; FetchResult caches its DOM, so each call parses again. */
+    public FetchResult page() {
+        return new FetchResult(url, url, 200, HTML_HEADERS, body, "UTF-8");
+    }
+
+    private static byte[] read(String name) {
+        try {
+            String dir = System.getProperty("fixtures.dir");
+            if (dir != null) return Files.readAllBytes(Path.of(dir, name));
+            try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+                if (in == null) throw new IOException("missing fixture " + name);
+                return in.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.dantri.crawler.parser;
+
+import com.dantri.crawler.bench.Fixtures;
+import com.dantri.crawler.domain.Article;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The extraction cascade of {@link UniversalArticleParser#parse} on saved
+ * pages (everything parseUrl does after the download), and each content layer
+ * on its own against a DOM built once in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"dantri.com.vn", "vnexpress.net", "tuoitre.vn", "vietnamnet.vn",
+            "tienphong.vn", "thanhnien.vn", "vtcnews.vn", "danviet.vn",
+            "nhandan.vn", "www.qdnd.vn", "soha.vn", "baochinhphu.vn"})
+    public String host;
+
+    private final UniversalArticleParser parser = new UniversalArticleParser();
+    private Fixtures fixture;
+    private Document doc;
+    private JsonLdContext ld;
+
+    @Setup
+    public void setup() {
+        fixture = Fixtures.load(host);
+        doc = fixture.page().getDocument();
+        ld = JsonLdContext.of(doc);
+    }
+
+    /** DOM build + all layers + dates, author and tag fallback. */
+    @Benchmark
+    public Article cascade() {
+        return parser.parse(fixture.page());
+    }
+
+    @Benchmark
+    public Document dom() {
+        return fixture.page().getDocument();
+    }
+
+    /** Includes reading the ld+json blocks, which the cascade does once per page. */
+    @Benchmark
+    public Article jsonLdLayer() {
+        return parser.parseJsonLdContent(JsonLdContext.of(doc), fixture.url());
+    }
+
+    @Benchmark
+    public Article jsonLdLayerPreparsed() {
+        return parser.parseJsonLdContent(ld, fixture.url());
+    }
+
+    @Benchmark
+    public Article metaLayer() {
+        return parser.parseMetaContent(doc, fixture.url());
+    }
+
+    @Benchmark
+    public Article boilerpipeLayer() {
+        return parser.parseBoilerpipeContent(doc, fixture.url());
+    }
+}
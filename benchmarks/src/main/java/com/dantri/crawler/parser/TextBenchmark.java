@@ -0,0 +1,48 @@
+package com.dantri.crawler.parser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/** {@code clean()} and {@code tryParseOffset()}, which run for every title, paragraph and date candidate. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+    private static final UniversalArticleParser PARSER = new UniversalArticleParser();
+
+    @State(Scope.Thread)
+    public static class Text {
+        @Param({"title", "paragraph"})
+        public String kind;
+
+        String raw;
+
+        @Setup
+        public void setup() {
+            String t = "  Giá vàng &amp; xăng dầu   hôm nay\n\t(17/10)  tăng &quot;mạnh&quot; ";
+            raw = "title".equals(kind) ? t : t.repeat(20);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Dates {
+        /** In the order DATE_FORMATTERS tries them; "garbage" falls through every one. */
+        @Param({"2026-10-17T08:30:00+07:00", "2026-10-17T08:30:00.123 +0700", "2026-10-17T08:30:00",
+                "17/10/2026 08:30", "garbage"})
+        public String raw;
+    }
+
+    @Benchmark
+    public String clean(Text t) {
+        return PARSER.clean(t.raw);
+    }
+
+    @Benchmark
+    public OffsetDateTime tryParseOffset(Dates d) {
+        return PARSER.tryParseOffset(d.raw);
+    }
+}
@@ -0,0 +1,138 @@
+package com.dantri.crawler.visited;
+
+import com.dantri.crawler.persist.GroupCommitWriter;
+import com.dantri.crawler.url.UrlFingerprint;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookups against the visited and non-article stores shared by all benchmark
+ * threads, as the workers share them. Run at increasing thread counts with
+ * {@code -t} or {@link com.dantri.crawler.bench.ContentionMain}. The stores
+ * live under ./data and are filled on the first run only; a ./data that was
+ * not created by this benchmark (a real crawl's state) is refused.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KnownUrlBenchmark {
+    private static final int VISITED = 200_000;
+    private static final int NON_ARTICLE = 50_000;
+    private static final int KEYS = 1 << 16;
+    private static final Path DATA = Path.of("data");
+    private static final Path MARKER = DATA.resolve(".known-url-benchmark");
+
+    @State(Scope.Benchmark)
+    public static class Stores {
+        ShardedBloomFilter preFilter;
+        GroupCommitWriter writer;
+        VisitedUrlsManager visited;
+        NonArticleStore nonArticles;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            claimDataDir();
+            preFilter = new ShardedBloomFilter(1_000_000, 0.01, 16L << 20, 16);
+            writer = GroupCommitWriter.fromConfig();
+            visited = new VisitedUrlsManager(preFilter, writer);
+            nonArticles = new NonArticleStore(preFilter, writer);
+            for (int i = 0; i < VISITED; i++) visited.markVisited(articleUrl(i));
+            for (int i = 0; i < NON_ARTICLE; i++) {
+                if (!nonArticles.isNonArticle(hubUrl(i))) nonArticles.markNonArticle(hubUrl(i));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            visited.close();
+            nonArticles.close();
+            writer.close();
+        }
+    }
+
+    /** Per-thread key cursor so threads do not walk the same keys in lockstep. */
+    @State(Scope.Thread)
+    public static class Keys {
+        final String[] known = new String[KEYS];
+        final String[] hubs = new String[KEYS];
+        final String[] unseen = new String[KEYS];
+        int i;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            long salt = Thread.currentThread().threadId();
+            for (int k = 0; k < KEYS; k++) {
+                known[k] = articleUrl((int) ((k * 7919L + salt) % VISITED));
+                hubs[k] = hubUrl((int) ((k * 104729L + salt) % NON_ARTICLE));
+                unseen[k] = "https://vnexpress.net/moi/bai-chua-gap-" + salt + "-" + k + ".html";
+            }
+        }
+
+        int next() {
+            return i = (i + 1) & (KEYS - 1);
+        }
+    }
+
+    /** Same rule as ReplayDriver: never write fake URLs into a crawl's ./data. */
+    private static void claimDataDir() throws IOException {
+        if (Files.isDirectory(DATA) && !Files.exists(MARKER)) {
+            try (Stream<Path> s = Files.list(DATA)) {
+                if (s.findAny().isPresent()) {
+                    throw new IllegalStateException(DATA.toAbsolutePath()
+                            + " holds crawler state; run the benchmark from a scratch directory");
+                }
+            }
+        }
+        Files.createDirectories(DATA);
+        if (!Files.exists(MARKER)) Files.createFile(MARKER);
+    }
+
+    static String articleUrl(int i) {
+        return "https://dantri.com.vn/xa-hoi/bai-viet-so-" + i + ".htm";
+    }
+
+    static String hubUrl(int i) {
+        return "https://tuoitre.vn/chuyen-muc-" + i + ".htm";
+    }
+
+    @Benchmark
+    public boolean visitedHit(Stores s, Keys k) {
+        return s.visited.isVisited(k.known[k.next()]);
+    }
+
+    @Benchmark
+    public boolean nonArticleHit(Stores s, Keys k) {
+        return s.nonArticles.isNonArticle(k.hubs[k.next()]);
+    }
+
+    /** CrawlWorker.isKnown for a URL never seen: fingerprint plus a pre-filter miss. */
+    @Benchmark
+    public boolean knownUnseen(Stores s, Keys k) {
+        return isKnown(s, k.unseen[k.next()]);
+    }
+
+    /** Links on a hub page: mostly unseen, some visited articles and known hubs. */
+    @Benchmark
+    public boolean knownMixed(Stores s, Keys k) {
+        int n = k.next();
+        String url = switch (n & 7) {
+            case 0 -> k.known[n];
+            case 1 -> k.hubs[n];
+            default -> k.unseen[n];
+        };
+        return isKnown(s, url);
+    }
+
+    private static boolean isKnown(Stores s, String url) {
+        long fp = UrlFingerprint.of(url);
+        if (!s.preFilter.mightContain(fp)) return false;
+        return s.visited.isVisited(fp) || s.nonArticles.isNonArticle(url);
+    }
+}
@@ -0,0 +1,77 @@
+package com.dantri.crawler.worker;
+
+import com.dantri.crawler.bench.Fixtures;
+import com.dantri.crawler.classify.UrlShapeClassifier;
+import com.dantri.crawler.queue.UrlTask;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import com.dantri.crawler.url.UrlFingerprint;
+import com.dantri.crawler.visited.ShardedBloomFilter;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The link loop of CrawlWorker.extractAndQueueLinks on a saved page: select,
+ * canonicalize, same-host filter, pre-filter check and scoring. The queue
+ * push and the store lookups behind the pre-filter are left out (see
+ * KnownUrlBenchmark); every other link on the page is already known.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkFilterBenchmark {
+    @Param({"dantri.com.vn", "vnexpress.net", "tienphong.vn", "www.qdnd.vn"})
+    public String host;
+
+    private final UrlCanonicalizer canonicalizer = UrlCanonicalizer.fromConfig();
+    private final UrlShapeClassifier classifier = UrlShapeClassifier.fromConfig();
+    private final ShardedBloomFilter preFilter = new ShardedBloomFilter(1_000_000, 0.01, 16L << 20, 16);
+    private Document doc;
+    private String pageUrl;
+
+    @Setup
+    public void setup() {
+        Fixtures fixture = Fixtures.load(host);
+        doc = fixture.page().getDocument();
+        pageUrl = fixture.url();
+        int i = 0;
+        for (Element e : doc.select("a[href]")) {
+            String href = canonicalizer.canonicalize(e.absUrl("href"));
+            if (href != null && i++ % 2 == 0) preFilter.put(UrlFingerprint.of(href));
+        }
+    }
+
+    /** Same-host canonical links, the list handed to HubScheduler.observe. */
+    @Benchmark
+    public List<String> sameHostLinks() {
+        String baseDomain = UrlCanonicalizer.hostOf(pageUrl);
+        List<String> found = new ArrayList<>();
+        for (Element e : doc.select("a[href]")) {
+            String href = canonicalizer.canonicalize(e.absUrl("href"));
+            if (href != null && baseDomain.equals(UrlCanonicalizer.hostOf(href))) found.add(href);
+        }
+        return found;
+    }
+
+    /** sameHostLinks plus the pre-filter check and the tasks that would be pushed. */
+    @Benchmark
+    public List<UrlTask> unknownLinkTasks() {
+        String baseDomain = UrlCanonicalizer.hostOf(pageUrl);
+        List<UrlTask> links = new ArrayList<>();
+        for (Element e : doc.select("a[href]")) {
+            String href = canonicalizer.canonicalize(e.absUrl("href"));
+            if (href == null || !baseDomain.equals(UrlCanonicalizer.hostOf(href))) continue;
+            if (!preFilter.mightContain(UrlFingerprint.of(href))) {
+                links.add(new UrlTask(href, 1, classifier.articleProbability(href)));
+            }
+        }
+        return links;
+    }
+}
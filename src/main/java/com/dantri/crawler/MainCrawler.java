@@ -1,61 +1,168 @@
 package com.dantri.crawler;
 
+import com.dantri.crawler.classify.UrlShapeClassifier;
 import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.dedup.NearDuplicateDetector;
+import com.dantri.crawler.discovery.FeedDiscovery;
+import com.dantri.crawler.fetch.Fetcher;
+import com.dantri.crawler.fetch.ValidatorCache;
+import com.dantri.crawler.metrics.MetricsServer;
 import com.dantri.crawler.parser.UniversalArticleParser;
+import com.dantri.crawler.persist.GroupCommitWriter;
 import com.dantri.crawler.queue.CrawlQueueManager;
+import com.dantri.crawler.scheduler.HubScheduler;
 import com.dantri.crawler.scheduler.SchedulerManager;
 import com.dantri.crawler.storage.ArticleStorage;
+import com.dantri.crawler.url.UrlCanonicalizer;
 import com.dantri.crawler.visited.NonArticleStore;
+import com.dantri.crawler.visited.ShardedBloomFilter;
 import com.dantri.crawler.visited.VisitedUrlsManager;
+import com.dantri.crawler.warc.ArchivingFetcher;
+import com.dantri.crawler.warc.WarcWriter;
 import com.dantri.crawler.worker.CrawlWorker;
+import com.dantri.crawler.worker.VirtualWorkerPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Wires the crawler together. {@link #start()} returns once workers and the
+ * scheduler are running, {@link #stop()} shuts everything down in order;
+ * {@link #main} runs until ENTER, the replay driver for a fixed duration.
+ */
 public class MainCrawler {
     private static final Logger log = LoggerFactory.getLogger(MainCrawler.class);
 
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final List<Thread> workers = new ArrayList<>();
+    private MetricsServer metrics;
+    private CrawlQueueManager queue;
+    private GroupCommitWriter logWriter;
+    private VisitedUrlsManager visited;
+    private NonArticleStore nonArticleStore;
+    private ArticleStorage storage;
+    private WarcWriter warc;
+    private HubScheduler hubs;
+    private VirtualWorkerPool virtualPool;
+    private SchedulerManager scheduler;
+
+    private MainCrawler() {}
+
     public static void main(String[] args) {
+        configureDnsCache();
         try {
-            log.info("Starting crawler...");
+            MainCrawler crawler = start();
+            System.out.println("Press ENTER to stop...");
+
+            // Chặn luồng chính
+            try (Scanner sc = new Scanner(System.in)) {
+                sc.nextLine();
+            }
 
-            int maxLevel = ConfigLoader.getDefaultMaxLevel();
-            int threads = ConfigLoader.getThreadPoolSize();
-            int cap = Math.max(ConfigLoader.getMaxUrlsPerCrawl() * 200, 50_000);
+            crawler.stop();
+        } catch (Exception e) {
+            log.error("Error in MainCrawler", e);
+        }
+    }
+
+    /**
+     * Sets the JVM-wide InetAddress cache TTL to fetcher.dnsCacheTtlSeconds.
+     * HttpClient has no pluggable resolver, and the JDK reads this property
+     * only once, at the first host name lookup, so entry points call this
+     * before anything resolves a name. A value in the JVM's java.security
+     * file (or -Dsun.net.inetaddr.ttl) applies when it is not called.
+     */
+    public static void configureDnsCache() {
+        Security.setProperty("networkaddress.cache.ttl", String.valueOf(ConfigLoader.getDnsCacheTtlSeconds()));
+    }
+
+    public static MainCrawler start() throws Exception {
+        MainCrawler c = new MainCrawler();
+        c.startComponents();
+        return c;
+    }
 
-            CrawlQueueManager queue = new CrawlQueueManager(cap);
-            VisitedUrlsManager visited = new VisitedUrlsManager();
-            NonArticleStore nonArticleStore = new NonArticleStore();
-            UniversalArticleParser parser = new UniversalArticleParser();
-            ArticleStorage storage = new ArticleStorage();
+    private void startComponents() throws Exception {
+        log.info("Starting crawler...");
+        metrics = new MetricsServer();
+        metrics.start();
 
-            // Khởi tạo thread pool
-            AtomicBoolean running = new AtomicBoolean(true);
+        int maxLevel = ConfigLoader.getDefaultMaxLevel();
+        int threads = ConfigLoader.getThreadPoolSize();
+        int cap = Math.max(ConfigLoader.getMaxUrlsPerCrawl() * 200, 50_000);
+
+        queue = new CrawlQueueManager(cap);
+        queue.registerMetrics();
+        ShardedBloomFilter preFilter = ShardedBloomFilter.fromConfig();
+        logWriter = GroupCommitWriter.fromConfig();
+        visited = new VisitedUrlsManager(preFilter, logWriter);
+        nonArticleStore = new NonArticleStore(preFilter, logWriter);
+        log.info("URL pre-filter: {}", preFilter);
+        Fetcher fetcher = Fetcher.fromConfig();
+        if (ConfigLoader.isWarcEnabled()) {
+            // Lưu response gốc để sau này parse lại không cần fetch
+            warc = WarcWriter.fromConfig();
+            fetcher = new ArchivingFetcher(fetcher, warc);
+        }
+        ValidatorCache validators = new ValidatorCache(logWriter);
+        UniversalArticleParser parser = new UniversalArticleParser();
+        storage = new ArticleStorage();
+        NearDuplicateDetector nearDup = new NearDuplicateDetector(logWriter);
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.fromConfig();
+        UrlShapeClassifier classifier = UrlShapeClassifier.fromConfig();
+        classifier.bootstrap(visited::forEachJournalUrl, nonArticleStore::forEachUrl);
+        FeedDiscovery discovery = new FeedDiscovery(fetcher, canonicalizer, queue);
+        hubs = new HubScheduler(queue, discovery::hasFeeds);
+        // Seeds là hub đầu tiên; phải đăng ký trước khi worker lấy task
+        hubs.start(ConfigLoader.getStartUrls().stream().map(canonicalizer::canonicalize).toList());
+
+        // Khởi tạo thread pool
+        if ("virtual".equalsIgnoreCase(ConfigLoader.getWorkerMode())) {
+            CrawlWorker worker = new CrawlWorker(queue, fetcher, visited, nonArticleStore, preFilter, parser, storage, nearDup, canonicalizer, classifier, validators, hubs, maxLevel, running);
+            virtualPool = new VirtualWorkerPool(queue, worker, ConfigLoader.getMaxInFlight(), running);
+            virtualPool.start();
+        } else {
             for (int i = 0; i < threads; i++) {
                 Thread t = new Thread(
-                        new CrawlWorker(queue, visited, nonArticleStore, parser, storage, maxLevel, running),
+                        new CrawlWorker(queue, fetcher, visited, nonArticleStore, preFilter, parser, storage, nearDup, canonicalizer, classifier, validators, hubs, maxLevel, running),
                         "Worker-" + i
                 );
                 t.start();
+                workers.add(t);
             }
+        }
 
-            SchedulerManager scheduler = new SchedulerManager();
-            scheduler.start(queue);
-
-            System.out.println("Press ENTER to stop...");
-
-            // Chặn luồng chính
-            try (Scanner sc = new Scanner(System.in)) {
-                sc.nextLine();
-            }
+        scheduler = new SchedulerManager();
+        scheduler.start(queue, preFilter, classifier, discovery, validators, hubs, nearDup);
+    }
 
-            running.set(false);
-            scheduler.shutdown();
-            log.info("Crawler stopped.");
-        } catch (Exception e) {
-            log.error("Error in MainCrawler", e);
+    public void stop() throws Exception {
+        running.set(false);
+        // Đánh thức worker đang chờ task, rồi đợi trang đang xử lý dở xong trước khi đóng store
+        queue.stopTaking();
+        long timeoutMs = ConfigLoader.getRequestTimeoutMs() * 2L;
+        if (virtualPool != null && !virtualPool.shutdown(timeoutMs)) {
+            log.warn("Virtual workers still running after {} ms", timeoutMs);
+        }
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (Thread t : workers) {
+            t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (t.isAlive()) log.warn("{} still running after {} ms", t.getName(), timeoutMs);
         }
+        scheduler.shutdown();
+        hubs.shutdown();
+        visited.close();
+        nonArticleStore.close();
+        logWriter.close();
+        storage.close();
+        if (warc != null) warc.close();
+        queue.close();
+        metrics.stop();
+        log.info("Crawler stopped.");
     }
-}
\ No newline at end of file
+}
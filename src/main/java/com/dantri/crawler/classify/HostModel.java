@@ -0,0 +1,66 @@
+package com.dantri.crawler.classify;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Naive Bayes over URL shape features for one host, updated online.
+ * Class 1 = article, 0 = hub / non-article. Counters are updated without
+ * locks; a prediction may see a partially applied update, which only moves
+ * the estimate by one example.
+ */
+class HostModel {
+    private final ConcurrentHashMap<String, AtomicLongArray> features = new ConcurrentHashMap<>();
+    private final AtomicLongArray classes = new AtomicLongArray(2);
+    // ma trận nhầm lẫn cho các dự đoán đã được kiểm chứng
+    final LongAdder truePositives = new LongAdder();
+    final LongAdder falsePositives = new LongAdder();
+    final LongAdder falseNegatives = new LongAdder();
+    final LongAdder trueNegatives = new LongAdder();
+
+    void learn(List<String> f, boolean article) {
+        int c = article ? 1 : 0;
+        classes.incrementAndGet(c);
+        for (String name : f) {
+            features.computeIfAbsent(name, k -> new AtomicLongArray(2)).incrementAndGet(c);
+        }
+    }
+
+    /** P(article | features) with Laplace smoothing. */
+    double probability(List<String> f) {
+        long n0 = classes.get(0), n1 = classes.get(1);
+        double logit = Math.log((n1 + 1.0) / (n0 + 1.0));
+        for (String name : f) {
+            AtomicLongArray counts = features.get(name);
+            long c0 = counts == null ? 0 : counts.get(0);
+            long c1 = counts == null ? 0 : counts.get(1);
+            logit += Math.log((c1 + 1.0) / (n1 + 2.0)) - Math.log((c0 + 1.0) / (n0 + 2.0));
+        }
+        return 1.0 / (1.0 + Math.exp(-logit));
+    }
+
+    long examples(boolean article) {
+        return classes.get(article ? 1 : 0);
+    }
+
+    void recordOutcome(boolean predictedArticle, boolean article) {
+        if (predictedArticle) (article ? truePositives : falsePositives).increment();
+        else (article ? falseNegatives : trueNegatives).increment();
+    }
+
+    double precision() {
+        long tp = truePositives.sum(), fp = falsePositives.sum();
+        return tp + fp == 0 ? Double.NaN : (double) tp / (tp + fp);
+    }
+
+    double recall() {
+        long tp = truePositives.sum(), fn = falseNegatives.sum();
+        return tp + fn == 0 ? Double.NaN : (double) tp / (tp + fn);
+    }
+
+    long verified() {
+        return truePositives.sum() + falsePositives.sum() + falseNegatives.sum() + trueNegatives.sum();
+    }
+}
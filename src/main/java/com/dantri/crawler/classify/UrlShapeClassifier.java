@@ -0,0 +1,138 @@
+package com.dantri.crawler.classify;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Per-host online classifier predicting from the URL alone whether a page is
+ * an article or a hub (category / tag / listing page).
+ * <p>
+ * Each host has its own {@link HostModel}, trained from every crawl outcome
+ * and bootstrapped from what the visited journal (articles) and the
+ * non-article store already know. A host makes no predictions until it has
+ * seen urlClassifier.minExamples of each class. Predictions checked against
+ * the real outcome feed per-host precision / recall.
+ */
+public class UrlShapeClassifier {
+    private static final Logger log = LoggerFactory.getLogger(UrlShapeClassifier.class);
+
+    /** Returned when the host has too little training data to predict. */
+    public static final double UNKNOWN = -1;
+
+    private final Map<String, HostModel> models = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long minExamples;
+    private final double hubThreshold;
+    private final double explorationRate;
+    private final LongAdder hubsRouted = new LongAdder();
+
+    public UrlShapeClassifier(boolean enabled, long minExamples, double hubThreshold, double explorationRate) {
+        this.enabled = enabled;
+        this.minExamples = minExamples;
+        this.hubThreshold = hubThreshold;
+        this.explorationRate = explorationRate;
+    }
+
+    public static UrlShapeClassifier fromConfig() {
+        return new UrlShapeClassifier(
+                ConfigLoader.isUrlClassifierEnabled(),
+                ConfigLoader.getUrlClassifierMinExamples(),
+                ConfigLoader.getUrlClassifierHubThreshold(),
+                ConfigLoader.getUrlClassifierExplorationRate());
+    }
+
+    /**
+     * Trains on already known outcomes in a background thread, so startup does
+     * not wait for a large journal. Each source feeds URLs to the consumer it is given.
+     */
+    public void bootstrap(Consumer<Consumer<String>> articles, Consumer<Consumer<String>> nonArticles) {
+        if (!enabled) return;
+        Thread t = new Thread(() -> {
+            long[] n = {0, 0};
+            try {
+                articles.accept(url -> { learn(url, true); n[0]++; });
+                nonArticles.accept(url -> { learn(url, false); n[1]++; });
+                log.info("URL classifier bootstrapped from {} articles and {} non-articles, {} hosts",
+                        n[0], n[1], models.size());
+            } catch (Exception e) {
+                log.warn("URL classifier bootstrap failed after {} examples", n[0] + n[1], e);
+            }
+        }, "url-classifier-bootstrap");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** P(article) for a canonical URL, or {@link #UNKNOWN}; feeds the frontier score. */
+    public double articleProbability(String url) {
+        if (!enabled) return UNKNOWN;
+        HostModel m = models.get(host(url));
+        if (m == null || m.examples(true) < minExamples || m.examples(false) < minExamples) return UNKNOWN;
+        return m.probability(UrlShapeFeatures.of(url));
+    }
+
+    /**
+     * Confidently predicted hub that should skip the parse cascade. A small
+     * fraction (explorationRate) is let through anyway, so the model keeps
+     * seeing true outcomes for the URLs it would otherwise never verify.
+     */
+    public boolean shouldTreatAsHub(double p) {
+        return p != UNKNOWN && p <= hubThreshold
+                && ThreadLocalRandom.current().nextDouble() >= explorationRate;
+    }
+
+    /** Counts a URL sent to link extraction only because it was predicted to be a hub. */
+    public void recordHubRouted() {
+        hubsRouted.increment();
+    }
+
+    public long getHubsRouted() {
+        return hubsRouted.sum();
+    }
+
+    /** Learns a crawl outcome; predicted is the probability used before the fetch, or UNKNOWN. */
+    public void record(String url, double predicted, boolean article) {
+        if (!enabled) return;
+        if (predicted != UNKNOWN) {
+            models.get(host(url)).recordOutcome(predicted >= 0.5, article);
+        }
+        learn(url, article);
+    }
+
+    private void learn(String url, boolean article) {
+        String host = host(url);
+        if (host.isEmpty()) return;
+        models.computeIfAbsent(host, h -> new HostModel()).learn(UrlShapeFeatures.of(url), article);
+    }
+
+    private static String host(String url) {
+        String h = UrlCanonicalizer.hostOf(url);
+        return h == null ? "" : h;
+    }
+
+    /** Per-host precision / recall of verified predictions, host -> {precision, recall, verified}. */
+    public Map<String, double[]> precisionRecall() {
+        Map<String, double[]> out = new TreeMap<>();
+        models.forEach((h, m) -> out.put(h, new double[]{m.precision(), m.recall(), m.verified()}));
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        precisionRecall().forEach((h, v) -> {
+            if (v[2] == 0) return;
+            sb.append(String.format("%n  %s: precision=%.3f recall=%.3f verified=%d", h, v[0], v[1], (long) v[2]));
+        });
+        return "hubsRouted=" + hubsRouted.sum() + (sb.length() == 0 ? ", no verified predictions yet" : sb.toString());
+    }
+}
@@ -0,0 +1,91 @@
+package com.dantri.crawler.classify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Token and shape features of a canonical URL's path.
+ * <p>
+ * The last path segment is reduced to a shape: letter runs become "a", digit
+ * runs become "D" plus their length, and a repeated "a-" slug collapses to
+ * "a+". So {@code /the-gioi/my-bau-cu-20241105093012345.htm} has shape
+ * {@code a+-D17.htm}, and {@code /kinh-doanh/abc-4812345.html} has shape
+ * {@code a+-D7.html}; category pages such as {@code /the-thao.htm} give
+ * {@code a+.htm} with a short slug.
+ */
+final class UrlShapeFeatures {
+
+    private UrlShapeFeatures() {}
+
+    static List<String> of(String url) {
+        List<String> f = new ArrayList<>(10);
+        int scheme = url.indexOf("://");
+        int pathStart = url.indexOf('/', scheme < 0 ? 0 : scheme + 3);
+        if (pathStart < 0) {
+            f.add("depth=0");
+            return f;
+        }
+        int q = url.indexOf('?', pathStart);
+        int h = url.indexOf('#', pathStart);
+        int pathEnd = q >= 0 ? q : (h >= 0 ? h : url.length());
+        if (q >= 0) f.add("query");
+        String path = url.substring(pathStart + 1, pathEnd).toLowerCase(Locale.ROOT);
+        if (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        String[] segs = path.isEmpty() ? new String[0] : path.split("/");
+        f.add("depth=" + Math.min(segs.length, 6));
+        if (segs.length == 0) return f;
+
+        if (segs.length > 1) f.add("seg0=" + segs[0]);
+        String last = segs[segs.length - 1];
+        int dot = last.lastIndexOf('.');
+        f.add("ext=" + (dot >= 0 ? last.substring(dot + 1) : ""));
+
+        StringBuilder shape = new StringBuilder();
+        int words = 0;
+        boolean longNumber = false;
+        int i = 0;
+        while (i < last.length()) {
+            char c = last.charAt(i);
+            int j = i;
+            if (Character.isLetter(c)) {
+                while (j < last.length() && Character.isLetter(last.charAt(j))) j++;
+                shape.append('a');
+                words++;
+            } else if (Character.isDigit(c)) {
+                while (j < last.length() && Character.isDigit(last.charAt(j))) j++;
+                shape.append('D').append(j - i);
+                if (j - i >= 6) longNumber = true;
+            } else {
+                j++;
+                shape.append(c);
+            }
+            i = j;
+        }
+        String s = collapseSlug(shape);
+        f.add("shape=" + s);
+        int tail = Math.max(s.lastIndexOf('-'), s.lastIndexOf('_'));
+        if (tail >= 0) f.add("tail=" + s.substring(tail));
+        if (longNumber) f.add("longnum");
+        f.add("words=" + (words <= 1 ? words : words <= 3 ? 2 : words <= 7 ? 4 : 8));
+        return f;
+    }
+
+    /** "a-a-...-a" -> "a+" (letter runs are the only 'a' in a shape). */
+    private static String collapseSlug(CharSequence shape) {
+        StringBuilder out = new StringBuilder(shape.length());
+        int n = shape.length();
+        int i = 0;
+        while (i < n) {
+            if (shape.charAt(i) == 'a' && i + 2 < n && shape.charAt(i + 1) == '-' && shape.charAt(i + 2) == 'a') {
+                int j = i + 2;
+                while (j + 2 < n && shape.charAt(j + 1) == '-' && shape.charAt(j + 2) == 'a') j += 2;
+                out.append("a+");
+                i = j + 1;
+            } else {
+                out.append(shape.charAt(i++));
+            }
+        }
+        return out.toString();
+    }
+}
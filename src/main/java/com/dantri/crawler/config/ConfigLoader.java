@@ -2,15 +2,27 @@ package com.dantri.crawler.config;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Static accessors over config.json. With {@code -Dcrawler.config=<file>} that
+ * file (or classpath resource) is merged over the bundled config: objects merge key by key, any other
+ * value (arrays included) replaces the bundled one.
+ */
 public class ConfigLoader {
     private static final Logger logger = LoggerFactory.getLogger(ConfigLoader.class);
+    public static final String CONFIG_PROPERTY = "crawler.config";
     private static JsonNode root;
 
     static {
@@ -20,14 +32,41 @@ public class ConfigLoader {
     private static void load() {
         try (InputStream is = ConfigLoader.class.getResourceAsStream("/config.json")) {
             if (is == null) throw new RuntimeException("config.json not found");
-            root = new ObjectMapper().readTree(is);
+            ObjectMapper mapper = new ObjectMapper();
+            root = mapper.readTree(is);
             logger.info("Loaded config.json");
+            String overlay = System.getProperty(CONFIG_PROPERTY);
+            if (overlay != null) {
+                merge((ObjectNode) root, readOverlay(mapper, overlay));
+                logger.info("Merged {} over config.json", overlay);
+            }
         } catch (Exception e) {
             logger.error("Error loading config.json", e);
             throw new RuntimeException(e);
         }
     }
 
+    /** A file path, else a resource on the classpath (e.g. the bundled replay.json). */
+    private static JsonNode readOverlay(ObjectMapper mapper, String name) throws IOException {
+        Path file = Path.of(name);
+        if (Files.exists(file)) return mapper.readTree(file.toFile());
+        try (InputStream is = ConfigLoader.class.getResourceAsStream("/" + name)) {
+            if (is == null) throw new IOException(name + " not found");
+            return mapper.readTree(is);
+        }
+    }
+
+    private static void merge(ObjectNode base, JsonNode overlay) {
+        overlay.fields().forEachRemaining(e -> {
+            JsonNode cur = base.get(e.getKey());
+            if (cur instanceof ObjectNode obj && e.getValue().isObject()) {
+                merge(obj, e.getValue());
+            } else {
+                base.set(e.getKey(), e.getValue());
+            }
+        });
+    }
+
     public static List<String> getStartUrls() {
         List<String> urls = new ArrayList<>();
         root.path("startUrls").forEach(n -> urls.add(n.asText()));
@@ -61,4 +100,301 @@ public class ConfigLoader {
     public static long getNonArticleTTL() {
         return root.path("settings").path("nonArticleTTL").asLong(18000000);
     }
+
+    public static long getRequestDelayMs() {
+        return root.path("settings").path("requestDelayMs").asLong(200);
+    }
+
+    public static Map<String, Long> getDomainDelayMs() {
+        Map<String, Long> delays = new HashMap<>();
+        root.path("settings").path("domainDelayMs").fields()
+                .forEachRemaining(e -> delays.put(e.getKey().toLowerCase(), e.getValue().asLong()));
+        return delays;
+    }
+
+    /** "platform" (threadPoolSize threads) or "virtual" (one virtual thread per task). */
+    public static String getWorkerMode() {
+        return root.path("settings").path("workerMode").asText("platform");
+    }
+
+    public static int getMaxInFlight() {
+        return root.path("settings").path("maxInFlight").asInt(1000);
+    }
+
+    public static int getMaxPerHost() {
+        return root.path("settings").path("maxPerHost").asInt(8);
+    }
+
+    public static String getFetcherType() {
+        return root.path("fetcher").path("type").asText("httpclient");
+    }
+
+    public static int getConnectTimeoutMs() {
+        return root.path("fetcher").path("connectTimeoutMs").asInt(5000);
+    }
+
+    public static int getRequestTimeoutMs() {
+        return root.path("fetcher").path("requestTimeoutMs").asInt(10000);
+    }
+
+    public static int getMaxBodyBytes() {
+        return root.path("fetcher").path("maxBodyBytes").asInt(2 * 1024 * 1024);
+    }
+
+    public static int getDnsCacheTtlSeconds() {
+        return root.path("fetcher").path("dnsCacheTtlSeconds").asInt(300);
+    }
+
+    /** Host -> origin requests are sent to instead (e.g. the replay server); "*" matches any host. */
+    public static Map<String, String> getHostRemap() {
+        Map<String, String> remap = new HashMap<>();
+        root.path("fetcher").path("hostRemap").fields()
+                .forEachRemaining(e -> remap.put(e.getKey().toLowerCase(), e.getValue().asText()));
+        return remap;
+    }
+
+    /** Raw "canonicalization" section, interpreted by UrlCanonicalizer. */
+    public static JsonNode getCanonicalization() {
+        return root.path("canonicalization");
+    }
+
+    public static long getVisitedInitialCapacity() {
+        return root.path("settings").path("visitedInitialCapacity").asLong(1 << 20);
+    }
+
+    public static long getPreFilterExpectedItems() {
+        return root.path("preFilter").path("expectedItems").asLong(5_000_000);
+    }
+
+    public static double getPreFilterFalsePositiveRate() {
+        return root.path("preFilter").path("falsePositiveRate").asDouble(0.01);
+    }
+
+    public static long getPreFilterMaxBytes() {
+        return root.path("preFilter").path("maxBytes").asLong(64L * 1024 * 1024);
+    }
+
+    public static int getPreFilterShards() {
+        return root.path("preFilter").path("shards").asInt(16);
+    }
+
+    public static int getPersistBatchSize() {
+        return root.path("persistence").path("batchSize").asInt(256);
+    }
+
+    public static long getPersistFlushIntervalMs() {
+        return root.path("persistence").path("flushIntervalMs").asLong(50);
+    }
+
+    /** "never", "batch" or "interval". */
+    public static String getPersistFsync() {
+        return root.path("persistence").path("fsync").asText("interval");
+    }
+
+    public static long getPersistFsyncIntervalMs() {
+        return root.path("persistence").path("fsyncIntervalMs").asLong(1000);
+    }
+
+    /** "jsonl.gz" or "jsonl". */
+    public static String getStorageFormat() {
+        return root.path("storage").path("format").asText("jsonl.gz");
+    }
+
+    public static long getStorageSegmentMaxBytes() {
+        return root.path("storage").path("segmentMaxBytes").asLong(64L << 20);
+    }
+
+    public static long getStorageSegmentMaxAgeMs() {
+        return root.path("storage").path("segmentMaxAgeMs").asLong(3_600_000);
+    }
+
+    public static int getStorageBatchSize() {
+        return root.path("storage").path("batchSize").asInt(64);
+    }
+
+    public static long getStorageFlushIntervalMs() {
+        return root.path("storage").path("flushIntervalMs").asLong(1000);
+    }
+
+    public static boolean isNearDupEnabled() {
+        return root.path("nearDup").path("enabled").asBoolean(true);
+    }
+
+    /** "skip" drops near-duplicates, "link" stores them with duplicateOf set. */
+    public static String getNearDupAction() {
+        return root.path("nearDup").path("action").asText("skip");
+    }
+
+    public static int getNearDupMaxHamming() {
+        return root.path("nearDup").path("maxHamming").asInt(4);
+    }
+
+    public static int getNearDupShingleSize() {
+        return root.path("nearDup").path("shingleSize").asInt(3);
+    }
+
+    public static int getNearDupMinTokens() {
+        return root.path("nearDup").path("minTokens").asInt(50);
+    }
+
+    public static int getNearDupRetentionDays() {
+        return root.path("nearDup").path("retentionDays").asInt(30);
+    }
+
+    public static boolean isHeadFirstEnabled() {
+        return root.path("headFirst").path("enabled").asBoolean(true);
+    }
+
+    public static int getHeadFirstMaxHeadBytes() {
+        return root.path("headFirst").path("maxHeadBytes").asInt(262144);
+    }
+
+    /** og:type values that count as articles; any other declared og:type means non-article. */
+    public static List<String> getHeadFirstArticleOgTypes() {
+        List<String> types = new ArrayList<>();
+        root.path("headFirst").path("articleOgTypes").forEach(n -> types.add(n.asText()));
+        if (types.isEmpty()) types.add("article");
+        return types;
+    }
+
+    public static boolean isUrlClassifierEnabled() {
+        return root.path("urlClassifier").path("enabled").asBoolean(true);
+    }
+
+    public static long getUrlClassifierMinExamples() {
+        return root.path("urlClassifier").path("minExamples").asLong(50);
+    }
+
+    public static double getUrlClassifierHubThreshold() {
+        return root.path("urlClassifier").path("hubThreshold").asDouble(0.05);
+    }
+
+    public static double getUrlClassifierExplorationRate() {
+        return root.path("urlClassifier").path("explorationRate").asDouble(0.05);
+    }
+
+    public static double getFrontierLevelWeight() {
+        return root.path("frontier").path("levelWeight").asDouble(1.0);
+    }
+
+    public static double getFrontierArticleWeight() {
+        return root.path("frontier").path("articleWeight").asDouble(2.0);
+    }
+
+    public static double getFrontierFreshnessWeightPerHour() {
+        return root.path("frontier").path("freshnessWeightPerHour").asDouble(1.0);
+    }
+
+    public static int getFrontierSpillRunSize() {
+        return root.path("frontier").path("spillRunSize").asInt(10_000);
+    }
+
+    public static boolean isFrontierJournalEnabled() {
+        return root.path("frontierJournal").path("enabled").asBoolean(true);
+    }
+
+    public static int getFrontierJournalSegmentBytes() {
+        return root.path("frontierJournal").path("segmentBytes").asInt(16 * 1024 * 1024);
+    }
+
+    public static int getFrontierJournalMaxSegments() {
+        return root.path("frontierJournal").path("maxSegments").asInt(16);
+    }
+
+    public static long getFrontierJournalCheckpointIntervalMs() {
+        return root.path("frontierJournal").path("checkpointIntervalMs").asLong(1000);
+    }
+
+    public static boolean isDiscoveryEnabled() {
+        return root.path("discovery").path("enabled").asBoolean(true);
+    }
+
+    public static long getDiscoveryFeedRefreshMs() {
+        return root.path("discovery").path("feedRefreshMs").asLong(86_400_000L);
+    }
+
+    public static long getDiscoveryInitialLookbackMs() {
+        return root.path("discovery").path("initialLookbackMs").asLong(86_400_000L);
+    }
+
+    public static long getDiscoveryOverlapMs() {
+        return root.path("discovery").path("overlapMs").asLong(600_000L);
+    }
+
+    public static int getDiscoveryMaxChildSitemaps() {
+        return root.path("discovery").path("maxChildSitemaps").asInt(5);
+    }
+
+    public static int getDiscoveryMaxFeedsPerHost() {
+        return root.path("discovery").path("maxFeedsPerHost").asInt(10);
+    }
+
+    public static long getDiscoverySweepIntervalMs() {
+        return root.path("discovery").path("sweepIntervalMs").asLong(3_600_000L);
+    }
+
+    public static boolean isValidatorCacheEnabled() {
+        return root.path("validatorCache").path("enabled").asBoolean(true);
+    }
+
+    public static long getHubSchedulerMinIntervalMs() {
+        return root.path("hubScheduler").path("minIntervalMs").asLong(60_000L);
+    }
+
+    public static long getHubSchedulerMaxIntervalMs() {
+        return root.path("hubScheduler").path("maxIntervalMs").asLong(7_200_000L);
+    }
+
+    public static long getHubSchedulerInitialIntervalMs() {
+        return root.path("hubScheduler").path("initialIntervalMs").asLong(300_000L);
+    }
+
+    public static double getHubSchedulerTargetNewLinks() {
+        return root.path("hubScheduler").path("targetNewLinks").asDouble(3.0);
+    }
+
+    public static double getHubSchedulerAlpha() {
+        return root.path("hubScheduler").path("alpha").asDouble(0.3);
+    }
+
+    public static int getHubSchedulerMaxHubs() {
+        return root.path("hubScheduler").path("maxHubs").asInt(2000);
+    }
+
+    public static int getHubSchedulerMaxHubLevel() {
+        return root.path("hubScheduler").path("maxHubLevel").asInt(1);
+    }
+
+    public static boolean isMetricsEnabled() {
+        return root.path("metrics").path("enabled").asBoolean(true);
+    }
+
+    public static int getMetricsPort() {
+        return root.path("metrics").path("port").asInt(9400);
+    }
+
+    /** Raw "replay" section, interpreted by ReplayServer. */
+    public static JsonNode getReplay() {
+        return root.path("replay");
+    }
+
+    public static boolean isWarcEnabled() {
+        return root.path("warc").path("enabled").asBoolean(false);
+    }
+
+    public static String getWarcDir() {
+        return root.path("warc").path("dir").asText("data/warc");
+    }
+
+    public static long getWarcMaxBytes() {
+        return root.path("warc").path("maxBytes").asLong(1L << 30);
+    }
+
+    public static long getWarcMaxAgeMs() {
+        return root.path("warc").path("maxAgeMs").asLong(3_600_000L);
+    }
+
+    public static int getWarcQueueCapacity() {
+        return root.path("warc").path("queueCapacity").asInt(512);
+    }
 }
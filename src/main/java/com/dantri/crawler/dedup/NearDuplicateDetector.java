@@ -0,0 +1,164 @@
+package com.dantri.crawler.dedup;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.domain.Article;
+import com.dantri.crawler.persist.GroupCommitWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-level dedup between parsing and storage: the same wire story
+ * republished under different URLs (and different hosts) maps to SimHash
+ * fingerprints a few bits apart. The first copy claims the fingerprint;
+ * later copies are reported with the URL of that first copy.
+ * <p>
+ * Fingerprints are kept for nearDup.retentionDays and persisted as a
+ * "fp \t addedAt \t url" log through the shared {@link GroupCommitWriter}.
+ * {@link #expire()} drops fingerprints past the window while running and
+ * compacts the log once it holds twice as many records as live entries.
+ */
+public class NearDuplicateDetector {
+    private static final Logger log = LoggerFactory.getLogger(NearDuplicateDetector.class);
+    private static final Path FILE = Paths.get("data/simhash.log");
+
+    private final boolean enabled;
+    private final boolean link;
+    private final int shingleSize;
+    private final int minTokens;
+    private final long retentionMs;
+    private final SimHashIndex index;
+    private final GroupCommitWriter.Log appendLog;
+    private final AtomicLong duplicates = new AtomicLong();
+    // Theo thứ tự thêm vào, nên entry cũ nhất luôn ở đầu
+    private final ConcurrentLinkedQueue<Added> added = new ConcurrentLinkedQueue<>();
+
+    private record Added(long fp, long addedAt) {}
+
+    public NearDuplicateDetector(GroupCommitWriter writer) throws IOException {
+        this.enabled = ConfigLoader.isNearDupEnabled();
+        this.link = "link".equalsIgnoreCase(ConfigLoader.getNearDupAction());
+        this.shingleSize = ConfigLoader.getNearDupShingleSize();
+        this.minTokens = ConfigLoader.getNearDupMinTokens();
+        this.retentionMs = ConfigLoader.getNearDupRetentionDays() * 86_400_000L;
+        this.index = new SimHashIndex(ConfigLoader.getNearDupMaxHamming());
+        List<String> live = new ArrayList<>();
+        long records = load(live);
+        this.appendLog = writer.open(FILE, records);
+        if (records > live.size()) appendLog.compact(() -> live);
+    }
+
+    /** Replays the log, keeping records inside the retention window. */
+    private long load(List<String> live) {
+        if (!Files.exists(FILE)) return 0;
+        long[] records = {0};
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        try (Stream<String> lines = Files.lines(FILE, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                records[0]++;
+                String[] f = line.split("\t", 3);
+                try {
+                    long addedAt = f.length == 3 ? Long.parseLong(f[1]) : 0;
+                    if (f.length == 3 && addedAt >= cutoff) {
+                        long fp = Long.parseUnsignedLong(f[0], 16);
+                        index.add(fp, f[2]);
+                        added.add(new Added(fp, addedAt));
+                        live.add(line);
+                    }
+                } catch (NumberFormatException e) {
+                    log.warn("Skipping invalid line in simhash log: {}", line);
+                }
+            });
+            log.info("Loaded {} content fingerprints from {} log records", index.size(), records[0]);
+        } catch (IOException e) {
+            log.error("Error reading simhash log", e);
+        }
+        return records[0];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True when duplicates should be stored with duplicateOf set rather than dropped. */
+    public boolean linksDuplicates() {
+        return link;
+    }
+
+    /**
+     * URL of an earlier near-identical article, or null when this is the first
+     * copy (its fingerprint is then registered). Short texts are not fingerprinted.
+     */
+    public String check(Article a) {
+        if (!enabled) return null;
+        List<String> tokens = SimHash.tokens(a.getContent());
+        if (tokens.size() < minTokens) return null;
+        long fp = SimHash.of(tokens, shingleSize);
+        long now = System.currentTimeMillis();
+        String original = index.claim(fp, a.getUrl());
+        if (original == null) {
+            added.add(new Added(fp, now));
+            appendLog.append(line(fp, now, a.getUrl()));
+            return null;
+        }
+        if (original.equals(a.getUrl())) return null;
+        duplicates.incrementAndGet();
+        return original;
+    }
+
+    /**
+     * Drops fingerprints older than retentionDays; returns how many. Called
+     * periodically (CrawlJob), so the index stops growing in long runs.
+     */
+    public int expire() {
+        if (!enabled) return 0;
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        int n = 0;
+        Added head;
+        while ((head = added.peek()) != null && head.addedAt() < cutoff) {
+            if (added.remove(head)) {
+                index.remove(head.fp());
+                n++;
+            }
+        }
+        long records = appendLog.records();
+        if (n > 0 && records > 2L * index.size()) {
+            appendLog.compact(this::snapshot).whenComplete((v, e) -> {
+                if (e != null) log.error("Failed to compact simhash log", e);
+                else log.info("Compacted simhash log: {} -> {} records", records, appendLog.records());
+            });
+        }
+        return n;
+    }
+
+    private List<String> snapshot() {
+        List<String> lines = new ArrayList<>(index.size());
+        for (Added a : added) {
+            String owner = index.owner(a.fp());
+            if (owner != null) lines.add(line(a.fp(), a.addedAt(), owner));
+        }
+        return lines;
+    }
+
+    private static String line(long fp, long addedAt, String url) {
+        return Long.toHexString(fp) + "\t" + addedAt + "\t" + url;
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
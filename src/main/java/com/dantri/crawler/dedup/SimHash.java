@@ -0,0 +1,61 @@
+package com.dantri.crawler.dedup;
+
+import com.dantri.crawler.url.UrlFingerprint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 64-bit SimHash over word shingles. Text is lowercased and split on anything
+ * that is not a letter or digit, so markup leftovers, punctuation and spacing
+ * differences between two copies of a story do not change the fingerprint.
+ */
+public final class SimHash {
+
+    private SimHash() {}
+
+    /** Lowercased letter/digit tokens of the text. */
+    public static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null) return out;
+        String s = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isLetterOrDigit(s.charAt(i))) {
+                if (start < 0) start = i;
+            } else if (start >= 0) {
+                out.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) out.add(s.substring(start));
+        return out;
+    }
+
+    /** SimHash of the shingles of shingleSize consecutive tokens; 0 for no tokens. */
+    public static long of(List<String> tokens, int shingleSize) {
+        if (tokens.isEmpty()) return 0;
+        long[] tokenHashes = new long[tokens.size()];
+        for (int i = 0; i < tokenHashes.length; i++) tokenHashes[i] = UrlFingerprint.of(tokens.get(i));
+
+        int k = Math.min(shingleSize, tokenHashes.length);
+        int[] weights = new int[64];
+        for (int i = 0; i + k <= tokenHashes.length; i++) {
+            long h = 0;
+            for (int j = 0; j < k; j++) h = UrlFingerprint.fmix(Long.rotateLeft(h, 17) ^ tokenHashes[i + j]);
+            for (int b = 0; b < 64; b++) {
+                weights[b] += ((h >>> b) & 1) != 0 ? 1 : -1;
+            }
+        }
+        long fp = 0;
+        for (int b = 0; b < 64; b++) {
+            if (weights[b] > 0) fp |= 1L << b;
+        }
+        return fp;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
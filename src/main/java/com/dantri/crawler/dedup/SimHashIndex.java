@@ -0,0 +1,109 @@
+package com.dantri.crawler.dedup;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+/**
+ * Banded index of SimHash fingerprints answering "is there a stored
+ * fingerprint within maxHamming bits of this one?".
+ * <p>
+ * The 64 bits are cut into maxHamming + 1 bands; two fingerprints that differ
+ * in at most maxHamming bits must agree exactly on at least one band
+ * (pigeonhole), so a lookup only compares against the few entries sharing a
+ * band value with the query. Reads are lock-free; inserts are serialized so
+ * that two near-identical copies arriving together cannot both claim to be
+ * the original.
+ */
+class SimHashIndex {
+    private final int maxHamming;
+    private final int[] bandShift;
+    private final long[] bandMask;
+    private final ConcurrentHashMap<Long, long[]>[] bands;
+    private final ConcurrentHashMap<Long, String> owners = new ConcurrentHashMap<>();
+
+    SimHashIndex(int maxHamming) {
+        this.maxHamming = maxHamming;
+        int n = maxHamming + 1;
+        this.bandShift = new int[n];
+        this.bandMask = new long[n];
+        @SuppressWarnings("unchecked") // mảng generic: chỉ chứa map do constructor này tạo
+        ConcurrentHashMap<Long, long[]>[] b = (ConcurrentHashMap<Long, long[]>[]) new ConcurrentHashMap<?, ?>[n];
+        this.bands = b;
+        int shift = 0;
+        for (int i = 0; i < n; i++) {
+            int width = 64 / n + (i < 64 % n ? 1 : 0);
+            bandShift[i] = shift;
+            bandMask[i] = width == 64 ? -1L : (1L << width) - 1;
+            bands[i] = new ConcurrentHashMap<>();
+            shift += width;
+        }
+    }
+
+    /** Owner of the closest-found fingerprint within maxHamming bits, or null. */
+    String findNear(long fp) {
+        String exact = owners.get(fp);
+        if (exact != null) return exact;
+        for (int i = 0; i < bands.length; i++) {
+            long[] candidates = bands[i].get(band(fp, i));
+            if (candidates == null) continue;
+            for (long c : candidates) {
+                if (SimHash.distance(c, fp) > maxHamming) continue;
+                String owner = owners.get(c);
+                if (owner != null) return owner; // null: vừa bị remove
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Atomically returns the owner of a near fingerprint, or registers owner
+     * for fp and returns null when there is none.
+     */
+    String claim(long fp, String owner) {
+        String near = findNear(fp);
+        if (near != null) return near;
+        synchronized (this) {
+            near = findNear(fp);
+            if (near != null) return near;
+            add(fp, owner);
+            return null;
+        }
+    }
+
+    /** Unconditional insert, used when replaying the persisted log. */
+    synchronized void add(long fp, String owner) {
+        if (owners.putIfAbsent(fp, owner) != null) return;
+        for (int i = 0; i < bands.length; i++) {
+            // copy-on-write: reader luôn thấy mảng đầy đủ
+            bands[i].merge(band(fp, i), new long[]{fp}, (old, one) -> {
+                long[] grown = Arrays.copyOf(old, old.length + 1);
+                grown[old.length] = one[0];
+                return grown;
+            });
+        }
+    }
+
+    /** Drops fp, e.g. when it falls out of the retention window. */
+    synchronized void remove(long fp) {
+        if (owners.remove(fp) == null) return;
+        for (int i = 0; i < bands.length; i++) {
+            bands[i].computeIfPresent(band(fp, i), (k, old) -> {
+                long[] kept = LongStream.of(old).filter(c -> c != fp).toArray();
+                return kept.length == 0 ? null : kept;
+            });
+        }
+    }
+
+    String owner(long fp) {
+        return owners.get(fp);
+    }
+
+    int size() {
+        return owners.size();
+    }
+
+    private long band(long fp, int i) {
+        return (fp >>> bandShift[i]) & bandMask[i];
+    }
+}
@@ -0,0 +1,73 @@
+package com.dantri.crawler.discovery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Poll state of the discovery feeds, kept across restarts in one TSV file:
+ * {@code host\tlocatedAt\tfeed...} lines for the feeds found per host and
+ * {@code feed\turl\tlastSuccess} lines for the last successful poll of each
+ * feed. Rewritten atomically after every poll round; not thread-safe.
+ */
+final class DiscoveryState {
+    private static final Logger log = LoggerFactory.getLogger(DiscoveryState.class);
+
+    record HostFeeds(long locatedAt, List<String> feeds) {}
+
+    private final Path file;
+    final Map<String, HostFeeds> hosts = new HashMap<>();
+    final Map<String, Long> lastSuccess = new HashMap<>();
+
+    private DiscoveryState(Path file) {
+        this.file = file;
+    }
+
+    static DiscoveryState load(Path file) {
+        DiscoveryState st = new DiscoveryState(file);
+        if (!Files.exists(file)) return st;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] f = line.split("\t");
+                if (f.length >= 3 && f[0].equals("host")) {
+                    st.hosts.put(f[1], new HostFeeds(Long.parseLong(f[2]), List.copyOf(Arrays.asList(f).subList(3, f.length))));
+                } else if (f.length == 3 && f[0].equals("feed")) {
+                    st.lastSuccess.put(f[1], Long.parseLong(f[2]));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Mất state chỉ khiến lần poll đầu nhìn lại initialLookbackMs
+            log.warn("Discovery state {} unreadable, starting fresh", file, e);
+            st.hosts.clear();
+            st.lastSuccess.clear();
+        }
+        return st;
+    }
+
+    void save() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, HostFeeds> e : hosts.entrySet()) {
+                w.write("host\t" + e.getKey() + "\t" + e.getValue().locatedAt());
+                for (String feed : e.getValue().feeds()) w.write("\t" + feed);
+                w.newLine();
+            }
+            for (Map.Entry<String, Long> e : lastSuccess.entrySet()) {
+                w.write("feed\t" + e.getKey() + "\t" + e.getValue());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
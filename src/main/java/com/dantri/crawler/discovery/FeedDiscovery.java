@@ -0,0 +1,216 @@
+package com.dantri.crawler.discovery;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.fetch.FetchResult;
+import com.dantri.crawler.fetch.Fetcher;
+import com.dantri.crawler.queue.CrawlQueueManager;
+import com.dantri.crawler.queue.UrlTask;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import org.jsoup.nodes.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Finds new articles from the sites' own sitemaps and feeds instead of
+ * walking homepages.
+ * <p>
+ * Feeds of each start host are located from {@code Sitemap:} lines in
+ * robots.txt and {@code <link rel="alternate">} RSS / Atom links on the
+ * homepage, and re-located every feedRefreshMs. Each poll streams every feed
+ * through {@link FeedParser} and enqueues only entries dated after the last
+ * successful poll of that feed (minus overlapMs for clock skew); a feed never
+ * polled before looks back initialLookbackMs. Sitemap indexes are followed
+ * into at most maxChildSitemaps children, newest first.
+ * <p>
+ * Entries are enqueued at the max crawl level, so they are parsed but never
+ * used as hubs. Hosts with feeds ({@link #hasFeeds(String)}) only get their
+ * hubs revisited as a background sweep by the hub scheduler.
+ */
+public class FeedDiscovery {
+    private static final Logger log = LoggerFactory.getLogger(FeedDiscovery.class);
+    private static final Path STATE_FILE = Paths.get("data/discovery-state.tsv");
+
+    private final Fetcher fetcher;
+    private final UrlCanonicalizer canonicalizer;
+    private final CrawlQueueManager queue;
+    private final boolean enabled;
+    private final long feedRefreshMs;
+    private final long initialLookbackMs;
+    private final long overlapMs;
+    private final int maxChildSitemaps;
+    private final int maxFeedsPerHost;
+    private final int entryLevel;
+    private final DiscoveryState state;
+    // Đọc từ worker (HubScheduler) không qua lock của poll(), vốn giữ suốt các lượt fetch
+    private final Set<String> feedHosts = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong enqueued = new AtomicLong();
+
+    public FeedDiscovery(Fetcher fetcher, UrlCanonicalizer canonicalizer, CrawlQueueManager queue) {
+        this.fetcher = fetcher;
+        this.canonicalizer = canonicalizer;
+        this.queue = queue;
+        this.enabled = ConfigLoader.isDiscoveryEnabled();
+        this.feedRefreshMs = ConfigLoader.getDiscoveryFeedRefreshMs();
+        this.initialLookbackMs = ConfigLoader.getDiscoveryInitialLookbackMs();
+        this.overlapMs = ConfigLoader.getDiscoveryOverlapMs();
+        this.maxChildSitemaps = ConfigLoader.getDiscoveryMaxChildSitemaps();
+        this.maxFeedsPerHost = ConfigLoader.getDiscoveryMaxFeedsPerHost();
+        this.entryLevel = ConfigLoader.getDefaultMaxLevel();
+        this.state = DiscoveryState.load(STATE_FILE);
+        state.hosts.forEach((host, known) -> {
+            if (!known.feeds().isEmpty()) feedHosts.add(host);
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True when feeds were located for the host, so its hubs matter less. */
+    public boolean hasFeeds(String host) {
+        return enabled && feedHosts.contains(host);
+    }
+
+    /** Polls the feeds of every start URL's host and enqueues new entries. */
+    public synchronized void poll(List<String> startUrls) {
+        if (!enabled) return;
+        long started = System.currentTimeMillis();
+        long requestsBefore = requests.get();
+        int feeds = 0;
+        int found = 0;
+        int pushed = 0;
+        for (String start : startUrls) {
+            String home = canonicalizer.canonicalize(start);
+            String host = home == null ? null : UrlCanonicalizer.hostOf(home);
+            if (host == null) continue;
+            List<String> hostFeeds = feedsOf(host, home, started);
+            List<UrlTask> tasks = new ArrayList<>();
+            for (String feed : hostFeeds) {
+                Long last = state.lastSuccess.get(feed);
+                long since = last == null ? started - initialLookbackMs : last - overlapMs;
+                if (pollFeed(feed, host, since, tasks, true)) state.lastSuccess.put(feed, started);
+            }
+            feeds += hostFeeds.size();
+            found += tasks.size();
+            if (!tasks.isEmpty()) pushed += queue.pushAllIfUnseen(tasks);
+        }
+        enqueued.addAndGet(pushed);
+        try {
+            state.save();
+        } catch (IOException e) {
+            log.warn("Could not save discovery state", e);
+        }
+        log.info("Discovery: {} feeds, {} requests, {} new entries, {} enqueued in {} ms",
+                feeds, requests.get() - requestsBefore, found, pushed, System.currentTimeMillis() - started);
+    }
+
+    /** Feeds from robots.txt and homepage alternate links, re-located when stale. */
+    private List<String> feedsOf(String host, String home, long now) {
+        DiscoveryState.HostFeeds known = state.hosts.get(host);
+        if (known != null && now - known.locatedAt() < feedRefreshMs) return known.feeds();
+
+        Set<String> feeds = new LinkedHashSet<>();
+        FetchResult robots = get(home.replaceFirst("^(https?://[^/]+).*$", "$1") + "/robots.txt");
+        if (robots != null && robots.isOk()) {
+            for (String line : new String(robots.getBody(), StandardCharsets.UTF_8).split("\r?\n")) {
+                if (line.regionMatches(true, 0, "sitemap:", 0, 8)) feeds.add(line.substring(8).trim());
+            }
+        }
+        FetchResult page = get(home);
+        if (page != null && page.isOk()) {
+            for (Element link : page.getDocument().select("link[rel=alternate][href]")) {
+                String type = link.attr("type").toLowerCase(Locale.ROOT);
+                if (type.contains("rss") || type.contains("atom")) feeds.add(link.absUrl("href"));
+            }
+        }
+        feeds.removeIf(String::isEmpty);
+        List<String> list = List.copyOf(new ArrayList<>(feeds).subList(0, Math.min(feeds.size(), maxFeedsPerHost)));
+        if (known != null && list.isEmpty()) {
+            // Lỗi mạng tạm thời: giữ danh sách cũ, thử lại lần sau
+            return known.feeds();
+        }
+        state.hosts.put(host, new DiscoveryState.HostFeeds(now, list));
+        if (list.isEmpty()) feedHosts.remove(host);
+        else feedHosts.add(host);
+        log.info("Discovery feeds for {}: {}", host, list.isEmpty() ? "none (homepage sweep only)" : list);
+        return list;
+    }
+
+    /** Streams one feed; returns false if it could not be fetched or parsed. */
+    private boolean pollFeed(String feed, String host, long since, List<UrlTask> out, boolean followIndex) {
+        FetchResult res = get(feed);
+        if (res == null || !res.isOk() || res.getBody().length == 0) {
+            log.debug("Discovery feed unavailable: {}", feed);
+            return false;
+        }
+        List<Found> found = new ArrayList<>();
+        try (InputStream in = open(res.getBody())) {
+            FeedParser.Kind kind = FeedParser.parse(in, (url, time) -> {
+                if (time < 0 || time > since) found.add(new Found(url, time));
+            });
+            if (kind == FeedParser.Kind.UNKNOWN) {
+                log.debug("Discovery: {} is not a sitemap or feed", feed);
+                return false;
+            }
+            if (kind == FeedParser.Kind.SITEMAP_INDEX) {
+                if (!followIndex) return true;
+                // Sitemap con mới nhất trước; sitemap không có lastmod xếp cuối
+                found.sort(Comparator.comparingLong((Found f) -> f.time).reversed());
+                boolean ok = true;
+                for (Found child : found.subList(0, Math.min(found.size(), maxChildSitemaps))) {
+                    ok &= pollFeed(child.url, host, since, out, false);
+                }
+                return ok;
+            }
+            for (Found f : found) {
+                // Mục không có ngày: không biết mới hay cũ, bỏ qua
+                if (f.time < 0) continue;
+                String u = canonicalizer.canonicalize(f.url);
+                if (u != null && host.equals(UrlCanonicalizer.hostOf(u))) out.add(new UrlTask(u, entryLevel, 1.0));
+            }
+            return true;
+        } catch (XMLStreamException | IOException e) {
+            log.debug("Discovery: cannot parse {}: {}", feed, e.getMessage());
+            return false;
+        }
+    }
+
+    private record Found(String url, long time) {}
+
+    private FetchResult get(String url) {
+        requests.incrementAndGet();
+        return fetcher.fetch(url);
+    }
+
+    /** Plain XML, or a .xml.gz body served without Content-Encoding. */
+    private static InputStream open(byte[] body) throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        if (body.length > 2 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b) return new GZIPInputStream(in);
+        return in;
+    }
+
+    @Override
+    public String toString() {
+        return enabled
+                ? "requests=" + requests.get() + ", enqueued=" + enqueued.get() + ", hosts=" + state.hosts.size()
+                : "disabled";
+    }
+}
@@ -0,0 +1,161 @@
+package com.dantri.crawler.discovery;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Streaming (StAX) parser for sitemap indexes, sitemaps (incl. Google News
+ * sitemaps), RSS 2.0 / 1.0 and Atom feeds. The document is never built: each
+ * entry is reported with its URL and the best timestamp it carries
+ * (publication date first, then lastmod / updated), or -1 when undated.
+ * DTDs and external entities are disabled.
+ */
+final class FeedParser {
+
+    enum Kind { SITEMAP_INDEX, URLSET, RSS, ATOM, UNKNOWN }
+
+    interface Handler {
+        void entry(String url, long time);
+    }
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newFactory();
+    private static final DateTimeFormatter ISO_COMPACT_OFFSET = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm[:ss][.SSS]xx");
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private FeedParser() {}
+
+    /** Reports every entry to the handler; returns the kind of document by its root element. */
+    static Kind parse(InputStream in, Handler handler) throws XMLStreamException {
+        XMLStreamReader r = FACTORY.createXMLStreamReader(in);
+        try {
+            Kind kind = Kind.UNKNOWN;
+            String entryName = null;
+            Entry cur = null;
+            while (r.hasNext()) {
+                int ev = r.next();
+                if (ev == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if (kind == Kind.UNKNOWN) {
+                        kind = kindOf(name);
+                        if (kind == Kind.UNKNOWN) return kind;
+                        entryName = entryElement(kind);
+                        continue;
+                    }
+                    if (name.equals(entryName)) {
+                        cur = new Entry();
+                    } else if (cur != null) {
+                        readField(r, name, kind, cur);
+                    }
+                } else if (ev == XMLStreamConstants.END_ELEMENT && cur != null && r.getLocalName().equals(entryName)) {
+                    if (cur.url != null && !cur.url.isEmpty()) handler.entry(cur.url.trim(), cur.time());
+                    cur = null;
+                }
+            }
+            return kind;
+        } finally {
+            r.close();
+        }
+    }
+
+    private static Kind kindOf(String root) {
+        switch (root) {
+            case "sitemapindex": return Kind.SITEMAP_INDEX;
+            case "urlset": return Kind.URLSET;
+            case "rss":
+            case "RDF": return Kind.RSS;
+            case "feed": return Kind.ATOM;
+            default: return Kind.UNKNOWN;
+        }
+    }
+
+    private static String entryElement(Kind kind) {
+        switch (kind) {
+            case SITEMAP_INDEX: return "sitemap";
+            case URLSET: return "url";
+            case RSS: return "item";
+            default: return "entry";
+        }
+    }
+
+    // Con trỏ đang ở START_ELEMENT của một field trong entry
+    private static void readField(XMLStreamReader r, String name, Kind kind, Entry e) throws XMLStreamException {
+        switch (name) {
+            case "loc":
+                // <image:loc>, <video:loc>... đứng sau <loc> của trang
+                if (e.url == null) e.url = r.getElementText();
+                break;
+            case "link":
+                if (kind == Kind.ATOM) {
+                    String rel = r.getAttributeValue(null, "rel");
+                    if (e.url == null && (rel == null || rel.equals("alternate"))) e.url = r.getAttributeValue(null, "href");
+                } else if (e.url == null) {
+                    e.url = r.getElementText();
+                }
+                break;
+            case "publication_date":
+            case "pubDate":
+            case "published":
+            case "date":
+                if (e.published < 0) e.published = parseTime(r.getElementText());
+                break;
+            case "lastmod":
+            case "updated":
+                e.modified = parseTime(r.getElementText());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** W3C datetime / ISO 8601 (sitemaps, Atom) or RFC 822 (RSS); -1 if unparseable. */
+    static long parseTime(String s) {
+        if (s == null) return -1;
+        s = s.trim();
+        if (s.isEmpty()) return -1;
+        try {
+            if (Character.isDigit(s.charAt(0))) {
+                s = s.replace(' ', 'T');
+                if (s.length() == 10) return LocalDate.parse(s).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                try {
+                    return OffsetDateTime.parse(s).toInstant().toEpochMilli();
+                } catch (DateTimeParseException e) {
+                    try {
+                        return OffsetDateTime.parse(s, ISO_COMPACT_OFFSET).toInstant().toEpochMilli();
+                    } catch (DateTimeParseException e2) {
+                        return LocalDateTime.parse(s).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    }
+                }
+            }
+            // "GMT+7" / "GMT+07:00" → "+0700"
+            s = s.replaceFirst("GMT([+-])(\\d)$", "$10$200").replaceFirst("GMT([+-])(\\d\\d):?(\\d\\d)$", "$1$2$3");
+            return ZonedDateTime.parse(s, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static final class Entry {
+        String url;
+        long published = -1;
+        long modified = -1;
+
+        long time() {
+            return published >= 0 ? published : modified;
+        }
+    }
+}
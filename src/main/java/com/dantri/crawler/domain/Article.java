@@ -11,6 +11,7 @@ public class Article {
     private String author;
     private String category;
     private String parseLayer;  // JSON-LD, OG, Meta, Boilerpipe
+    private String duplicateOf; // URL bản gốc nếu là bản sao gần giống
 
     public String getUrl() {
         return url;
@@ -60,4 +61,10 @@ public class Article {
     public void setParseLayer(String parseLayer) {
         this.parseLayer = parseLayer;
     }
+    public String getDuplicateOf() {
+        return duplicateOf;
+    }
+    public void setDuplicateOf(String duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
 }
@@ -0,0 +1,27 @@
+package com.dantri.crawler.fetch;
+
+import com.dantri.crawler.metrics.Counter;
+import com.dantri.crawler.metrics.Histogram;
+import com.dantri.crawler.metrics.Metrics;
+import com.dantri.crawler.url.UrlCanonicalizer;
+
+/** Per-host fetch latency, outcome and downloaded bytes, shared by the fetchers. */
+final class FetchMetrics {
+    private static final Histogram LATENCY = Metrics.histogram("crawler_fetch_seconds",
+            "Fetch latency per host, request until the body (or head) is read", 1e-9, "host");
+    private static final Counter RESULTS = Metrics.counter("crawler_fetch_requests_total",
+            "Fetches per host and result (2xx..5xx, error)", "host", "result");
+    private static final Counter BYTES = Metrics.counter("crawler_fetch_bytes_total",
+            "Decoded body bytes downloaded per host", "host");
+
+    private FetchMetrics() {}
+
+    /** r is null for network errors. */
+    static void record(String url, long startNanos, FetchResult r) {
+        String host = UrlCanonicalizer.hostOf(url);
+        if (host == null) host = "unknown";
+        LATENCY.labels(host).recordSince(startNanos);
+        RESULTS.labels(host, r == null ? "error" : (r.getStatus() / 100) + "xx").increment();
+        if (r != null) BYTES.labels(host).add(r.getBody().length);
+    }
+}
@@ -0,0 +1,117 @@
+package com.dantri.crawler.fetch;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One fetched page: status, headers and raw body bytes.
+ * The Document is parsed lazily from the body and then reused, so article
+ * extraction and link extraction share a single download and a single DOM.
+ * Not thread-safe; a result belongs to the worker that fetched it.
+ */
+public class FetchResult {
+    private final String url;
+    private final String finalUrl;
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private final String charset;
+    private final boolean headOnly;
+    private final long bytesSkipped;
+    private Document document;
+    private long documentNanos;
+
+    public FetchResult(String url, String finalUrl, int status,
+                       Map<String, List<String>> headers, byte[] body, String charset) {
+        this(url, finalUrl, status, headers, body, charset, false, 0);
+    }
+
+    /**
+     * @param headOnly     body stops after {@code </head>}; the rest was never downloaded
+     * @param bytesSkipped wire bytes left unread for a head-only result, -1 if unknown
+     */
+    public FetchResult(String url, String finalUrl, int status, Map<String, List<String>> headers,
+                       byte[] body, String charset, boolean headOnly, long bytesSkipped) {
+        this.url = url;
+        this.finalUrl = finalUrl != null ? finalUrl : url;
+        this.status = status;
+        this.headers = headers != null ? headers : Map.of();
+        this.body = body != null ? body : new byte[0];
+        this.charset = charset;
+        this.headOnly = headOnly;
+        this.bytesSkipped = bytesSkipped;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** URL after redirects; used as base URI for resolving links. */
+    public String getFinalUrl() {
+        return finalUrl;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isOk() {
+        return status >= 200 && status < 300;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /** First value of a header, case-insensitive, or null. */
+    public String getHeader(String name) {
+        for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+            if (e.getKey() != null && e.getKey().equalsIgnoreCase(name) && !e.getValue().isEmpty()) {
+                return e.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /** True when only the document head was read (see {@link Fetcher#fetch(String, java.util.function.Predicate)}). */
+    public boolean isHeadOnly() {
+        return headOnly;
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+
+    public Document getDocument() {
+        if (document == null) {
+            long started = System.nanoTime();
+            try {
+                // charset null --> Jsoup tự dò từ BOM / meta charset
+                document = Jsoup.parse(new ByteArrayInputStream(body), charset, finalUrl);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            documentNanos = System.nanoTime() - started;
+        }
+        return document;
+    }
+
+    /** Time {@link #getDocument()} spent building the DOM; 0 until it has been called. */
+    public long getDocumentNanos() {
+        return documentNanos;
+    }
+}
@@ -0,0 +1,55 @@
+package com.dantri.crawler.fetch;
+
+import com.dantri.crawler.config.ConfigLoader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Downloads pages into {@link FetchResult}s.
+ * Implementations are shared by all workers and must be thread-safe.
+ */
+public interface Fetcher {
+
+    /** Completes exceptionally on network errors; HTTP errors are reported via status. */
+    CompletableFuture<FetchResult> fetchAsync(String url);
+
+    /** Blocking variant; returns null on network errors. */
+    default FetchResult fetch(String url) {
+        try {
+            return fetchAsync(url).join();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Conditional GET with If-None-Match / If-Modified-Since (either may be
+     * null). An unchanged page comes back with status 304 and an empty body.
+     * Implementations that cannot send the headers do a plain fetch.
+     */
+    default FetchResult fetch(String url, String etag, String lastModified) {
+        return fetch(url);
+    }
+
+    /**
+     * Head-first fetch: once the response has been read up to {@code </head>},
+     * readBody is shown a head-only result of a 2xx response and decides whether
+     * the rest is downloaded. When it says no the stream is cancelled and the
+     * head-only result is returned. Implementations that cannot stream download
+     * the whole page and return it regardless of the answer.
+     */
+    default FetchResult fetch(String url, Predicate<FetchResult> readBody) {
+        FetchResult page = fetch(url);
+        if (page != null && page.isOk()) readBody.test(page);
+        return page;
+    }
+
+    /** Picks the implementation named by fetcher.type ("httpclient" or "jsoup"). */
+    static Fetcher fromConfig() {
+        if ("jsoup".equalsIgnoreCase(ConfigLoader.getFetcherType())) {
+            return new JsoupFetcher();
+        }
+        return new HttpClientFetcher();
+    }
+}
@@ -0,0 +1,65 @@
+package com.dantri.crawler.fetch;
+
+import com.dantri.crawler.config.ConfigLoader;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * fetcher.hostRemap: requests for a host go to another origin (the replay
+ * server) while the crawler keeps working with the real URLs. Only scheme,
+ * host and port are swapped; the real host travels in X-Forwarded-Host and
+ * response URLs on the remapped origin are mapped back.
+ */
+final class HostRemap {
+    static final String HOST_HEADER = "X-Forwarded-Host";
+
+    private final Map<String, String> targets;
+
+    HostRemap(Map<String, String> targets) {
+        this.targets = targets;
+    }
+
+    static HostRemap fromConfig() {
+        return new HostRemap(ConfigLoader.getHostRemap());
+    }
+
+    /** Origin (scheme://host:port) requests for host are sent to, or null. */
+    private String target(String host) {
+        if (targets.isEmpty() || host == null) return null;
+        String t = targets.get(host.toLowerCase());
+        return t != null ? t : targets.get("*");
+    }
+
+    /** URL to put on the wire; url itself when its host is not remapped. */
+    String toWire(String url) {
+        if (targets.isEmpty()) return url;
+        URI u = URI.create(url);
+        String origin = target(u.getHost());
+        if (origin == null) return url;
+        String path = u.getRawPath() == null || u.getRawPath().isEmpty() ? "/" : u.getRawPath();
+        return stripSlash(origin) + path + (u.getRawQuery() != null ? "?" + u.getRawQuery() : "");
+    }
+
+    /** Value for {@link #HOST_HEADER}, or null when url is fetched directly. */
+    String forwardedHost(String url) {
+        if (targets.isEmpty()) return null;
+        String host = URI.create(url).getHost();
+        return target(host) != null ? host : null;
+    }
+
+    /** Final URL of a response to url: wireUrl with the remapped origin swapped back. */
+    String fromWire(String url, String wireUrl) {
+        if (targets.isEmpty()) return wireUrl;
+        URI u = URI.create(url);
+        String origin = target(u.getHost());
+        if (origin == null) return wireUrl;
+        origin = stripSlash(origin);
+        if (!wireUrl.startsWith(origin)) return wireUrl;
+        return u.getScheme() + "://" + u.getRawAuthority() + wireUrl.substring(origin.length());
+    }
+
+    private static String stripSlash(String origin) {
+        return origin.endsWith("/") ? origin.substring(0, origin.length() - 1) : origin;
+    }
+}
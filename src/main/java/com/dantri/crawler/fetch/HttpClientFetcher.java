@@ -0,0 +1,332 @@
+package com.dantri.crawler.fetch;
+
+import com.dantri.crawler.config.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Default fetcher built on {@link HttpClient}.
+ * One client is shared by all workers, so keep-alive and HTTP/2 connections to
+ * each host are pooled and TLS handshakes are paid once per connection instead
+ * of once per page. Bodies are capped at fetcher.maxBodyBytes (before and after
+ * gzip/deflate decoding) and non-HTML bodies are discarded unread.
+ * The head-first variant decodes while streaming and can stop after {@code </head>}.
+ * Host names are resolved through the JVM's InetAddress cache, whose TTL is
+ * set once at startup ({@link com.dantri.crawler.MainCrawler#configureDnsCache()}).
+ */
+public class HttpClientFetcher implements Fetcher {
+    private static final Logger log = LoggerFactory.getLogger(HttpClientFetcher.class);
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final int maxBodyBytes;
+    private final int maxHeadBytes;
+    private final HostRemap remap = HostRemap.fromConfig();
+
+    public HttpClientFetcher() {
+        this.requestTimeout = Duration.ofMillis(ConfigLoader.getRequestTimeoutMs());
+        this.maxBodyBytes = ConfigLoader.getMaxBodyBytes();
+        this.maxHeadBytes = Math.min(ConfigLoader.getHeadFirstMaxHeadBytes(), maxBodyBytes);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(ConfigLoader.getConnectTimeoutMs()))
+                .build();
+    }
+
+    private HttpRequest request(String url) {
+        return builder(url).build();
+    }
+
+    private HttpRequest.Builder builder(String url) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(remap.toWire(url)))
+                .timeout(requestTimeout)
+                .header("User-Agent", "Mozilla/5.0")
+                .header("Referer", "https://www.google.com")
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        String host = remap.forwardedHost(url);
+        if (host != null) b.header(HostRemap.HOST_HEADER, host);
+        return b;
+    }
+
+    @Override
+    public CompletableFuture<FetchResult> fetchAsync(String url) {
+        HttpRequest req;
+        try {
+            req = request(url);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long started = System.nanoTime();
+        return client.sendAsync(req, this::bodyHandler)
+                .thenApply(res -> toResult(url, res))
+                .whenComplete((r, e) -> {
+                    FetchMetrics.record(url, started, e == null ? r : null);
+                    if (e != null) log.debug("fetch error [{}]: {}", url, e.getMessage());
+                });
+    }
+
+    @Override
+    public FetchResult fetch(String url, String etag, String lastModified) {
+        long started = System.nanoTime();
+        FetchResult r = null;
+        try {
+            HttpRequest.Builder b = builder(url);
+            if (etag != null) b.header("If-None-Match", etag);
+            if (lastModified != null) b.header("If-Modified-Since", lastModified);
+            r = client.sendAsync(b.build(), this::bodyHandler).thenApply(res -> toResult(url, res)).join();
+            return r;
+        } catch (Exception e) {
+            log.debug("fetch error [{}]: {}", url, e.getMessage());
+            return null;
+        } finally {
+            FetchMetrics.record(url, started, r);
+        }
+    }
+
+    /**
+     * Streams the body on the calling thread, decoding as it goes, so the head
+     * can be inspected before the rest of the page is downloaded. Closing the
+     * stream early cancels the response (RST_STREAM on HTTP/2).
+     */
+    @Override
+    public FetchResult fetch(String url, Predicate<FetchResult> readBody) {
+        long started = System.nanoTime();
+        FetchResult r = stream(url, readBody);
+        FetchMetrics.record(url, started, r);
+        return r;
+    }
+
+    private FetchResult stream(String url, Predicate<FetchResult> readBody) {
+        try {
+            HttpResponse<InputStream> res = client.send(request(url), info ->
+                    isMarkup(info.headers().firstValue("Content-Type").orElse("text/html"))
+                            ? HttpResponse.BodySubscribers.ofInputStream()
+                            : HttpResponse.BodySubscribers.replacing(InputStream.nullInputStream()));
+            Map<String, List<String>> headers = new LinkedHashMap<>(res.headers().map());
+            String encoding = res.headers().firstValue("Content-Encoding").orElse(null);
+            long wireLength = res.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (encoding != null) {
+                headers.keySet().removeIf(k -> k.equalsIgnoreCase("Content-Encoding")
+                        || k.equalsIgnoreCase("Content-Length"));
+            }
+            String charset = charsetOf(res.headers().firstValue("Content-Type").orElse(null));
+            String finalUrl = remap.fromWire(url, res.uri().toString());
+
+            CountingInputStream wire = new CountingInputStream(res.body());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = decoding(wire, encoding)) {
+                boolean more = readHead(in, out);
+                if (more && res.statusCode() >= 200 && res.statusCode() < 300) {
+                    FetchResult head = new FetchResult(url, finalUrl, res.statusCode(), headers, out.toByteArray(),
+                            charset, true, wireLength >= 0 ? Math.max(0, wireLength - wire.count) : -1);
+                    if (!readBody.test(head)) return head;
+                }
+                if (more) copyCapped(in, out, maxBodyBytes);
+            }
+            return new FetchResult(url, finalUrl, res.statusCode(), headers, out.toByteArray(), charset);
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("fetch error [{}]: {}", url, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Reads until the end of the head ({@code </head>} or {@code <body}) or
+     * maxHeadBytes; returns false when the stream ended first.
+     */
+    private boolean readHead(InputStream in, ByteArrayOutputStream out) throws IOException {
+        byte[] buf = new byte[8192];
+        byte[] window = new byte[buf.length + 5];
+        int carry = 0;
+        while (out.size() < maxHeadBytes) {
+            int n;
+            try {
+                n = in.read(buf, 0, Math.min(buf.length, maxHeadBytes - out.size()));
+            } catch (EOFException truncated) {
+                return false;
+            }
+            if (n < 0) return false;
+            out.write(buf, 0, n);
+            // quét chunk mới kèm 5 byte cuối của chunk trước (thẻ có thể bị cắt đôi)
+            System.arraycopy(buf, 0, window, carry, n);
+            int len = carry + n;
+            if (endOfHead(window, 0, len) >= 0) return true;
+            carry = Math.min(5, len);
+            System.arraycopy(window, len - carry, window, 0, carry);
+        }
+        return true;
+    }
+
+    /** Index of {@code </head} or {@code <body} (ASCII, case-insensitive) in data[from, to), else -1. */
+    static int endOfHead(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] != '<') continue;
+            if (matches(data, i + 1, to, "/head") || matches(data, i + 1, to, "body")) return i;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] data, int at, int to, String word) {
+        if (at + word.length() > to) return false;
+        for (int k = 0; k < word.length(); k++) {
+            if (Character.toLowerCase((char) data[at + k]) != word.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private static void copyCapped(InputStream in, ByteArrayOutputStream out, int limit) throws IOException {
+        byte[] buf = new byte[8192];
+        try {
+            int n;
+            while (out.size() < limit && (n = in.read(buf, 0, Math.min(buf.length, limit - out.size()))) > 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (EOFException truncated) {
+            // giữ phần đã giải nén
+        }
+    }
+
+    private static InputStream decoding(InputStream in, String encoding) throws IOException {
+        if (encoding == null) return in;
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip":
+                return new GZIPInputStream(in);
+            case "deflate":
+                // zlib header bắt đầu bằng 0x78; không có thì là raw deflate
+                BufferedInputStream b = new BufferedInputStream(in);
+                b.mark(1);
+                int first = b.read();
+                b.reset();
+                return first == 0x78 ? new InflaterInputStream(b) : new InflaterInputStream(b, new Inflater(true));
+            default:
+                return in;
+        }
+    }
+
+    /** Counts bytes read from the wire, before decoding. */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    private HttpResponse.BodySubscriber<byte[]> bodyHandler(HttpResponse.ResponseInfo info) {
+        String type = info.headers().firstValue("Content-Type").orElse("text/html");
+        if (!isMarkup(type)) {
+            return HttpResponse.BodySubscribers.replacing(new byte[0]);
+        }
+        return new LimitedBodySubscriber(maxBodyBytes);
+    }
+
+    private FetchResult toResult(String url, HttpResponse<byte[]> res) {
+        Map<String, List<String>> headers = new LinkedHashMap<>(res.headers().map());
+        String encoding = res.headers().firstValue("Content-Encoding").orElse(null);
+        byte[] body;
+        try {
+            body = decode(res.body(), encoding, maxBodyBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot decode " + encoding + " body", e);
+        }
+        if (encoding != null) {
+            // Body đã được giải nén
+            headers.keySet().removeIf(k -> k.equalsIgnoreCase("Content-Encoding")
+                    || k.equalsIgnoreCase("Content-Length"));
+        }
+        String contentType = res.headers().firstValue("Content-Type").orElse(null);
+        return new FetchResult(url, remap.fromWire(url, res.uri().toString()), res.statusCode(), headers, body,
+                charsetOf(contentType));
+    }
+
+    static boolean isMarkup(String contentType) {
+        String t = contentType.toLowerCase(Locale.ROOT);
+        return t.startsWith("text/") || t.contains("html") || t.contains("xml");
+    }
+
+    static String charsetOf(String contentType) {
+        if (contentType == null) return null;
+        int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (i < 0) return null;
+        String cs = contentType.substring(i + 8).trim();
+        int end = cs.indexOf(';');
+        if (end >= 0) cs = cs.substring(0, end);
+        cs = cs.replace("\"", "").trim();
+        return cs.isEmpty() ? null : cs;
+    }
+
+    static byte[] decode(byte[] body, String encoding, int limit) throws IOException {
+        if (encoding == null || body.length == 0) return body;
+        switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip":
+                return readCapped(new GZIPInputStream(new ByteArrayInputStream(body)), limit);
+            case "deflate":
+                try {
+                    return readCapped(new InflaterInputStream(new ByteArrayInputStream(body)), limit);
+                } catch (ZipException e) {
+                    // Một số server gửi raw deflate không có zlib header
+                    return readCapped(new InflaterInputStream(new ByteArrayInputStream(body), new Inflater(true)), limit);
+                }
+            default:
+                return body;
+        }
+    }
+
+    /** Reads at most limit bytes; a body truncated at the compressed cap yields what was decoded so far. */
+    private static byte[] readCapped(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        try (in) {
+            int n;
+            while (out.size() < limit && (n = in.read(buf, 0, Math.min(buf.length, limit - out.size()))) > 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (EOFException truncated) {
+            // giữ phần đã giải nén
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.dantri.crawler.fetch;
+
+import com.dantri.crawler.config.ConfigLoader;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fetcher on top of {@code Jsoup.connect}: one blocking connection per request,
+ * no HTTP/2. Kept as a fallback for hosts that misbehave with {@link HttpClientFetcher}.
+ */
+public class JsoupFetcher implements Fetcher {
+    private static final Logger log = LoggerFactory.getLogger(JsoupFetcher.class);
+    private final int timeoutMs = ConfigLoader.getRequestTimeoutMs();
+    private final int maxBodyBytes = ConfigLoader.getMaxBodyBytes();
+    private final HostRemap remap = HostRemap.fromConfig();
+
+    @Override
+    public CompletableFuture<FetchResult> fetchAsync(String url) {
+        return CompletableFuture.supplyAsync(() -> fetch(url));
+    }
+
+    /** Returns null on network / content-type errors; HTTP errors are reported via status. */
+    @Override
+    public FetchResult fetch(String url) {
+        return fetch(url, null, null);
+    }
+
+    @Override
+    public FetchResult fetch(String url, String etag, String lastModified) {
+        long started = System.nanoTime();
+        FetchResult r = connect(url, etag, lastModified);
+        FetchMetrics.record(url, started, r);
+        return r;
+    }
+
+    private FetchResult connect(String url, String etag, String lastModified) {
+        try {
+            Connection conn = Jsoup.connect(remap.toWire(url))
+                    .userAgent("Mozilla/5.0")
+                    .referrer("https://www.google.com")
+                    .timeout(timeoutMs)
+                    .maxBodySize(maxBodyBytes)
+                    .ignoreHttpErrors(true);
+            String host = remap.forwardedHost(url);
+            if (host != null) conn.header(HostRemap.HOST_HEADER, host);
+            if (etag != null) conn.header("If-None-Match", etag);
+            if (lastModified != null) conn.header("If-Modified-Since", lastModified);
+            Connection.Response res = conn.execute();
+            return new FetchResult(
+                    url,
+                    remap.fromWire(url, res.url().toExternalForm()),
+                    res.statusCode(),
+                    res.multiHeaders(),
+                    res.bodyAsBytes(),
+                    res.charset()
+            );
+        } catch (Exception e) {
+            log.debug("fetch error [{}]: {}", url, e.getMessage());
+            return null;
+        }
+    }
+}
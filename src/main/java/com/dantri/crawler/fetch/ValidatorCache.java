@@ -0,0 +1,189 @@
+package com.dantri.crawler.fetch;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.persist.GroupCommitWriter;
+import com.dantri.crawler.url.UrlFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * HTTP validators (ETag, Last-Modified) and a body hash per hub / seed URL,
+ * so pages that are re-crawled every cycle only for their links are fetched
+ * with a conditional GET. A 304, or a 200 whose body hashes the same as last
+ * time, means there is nothing new to extract.
+ * <p>
+ * Persisted as a "url \t etag \t lastModified \t hash \t length \t updatedAt"
+ * log through the shared {@link GroupCommitWriter}; a line with only the URL
+ * removes the entry. Later lines win on load. The log is compacted at startup
+ * and whenever its records exceed twice the live entries.
+ */
+public class ValidatorCache {
+    private static final Logger log = LoggerFactory.getLogger(ValidatorCache.class);
+    private static final Path FILE = Paths.get("data/validators.log");
+    private static final long MIN_COMPACT_RECORDS = 1_000;
+
+    private record Validators(String etag, String lastModified, long bodyHash, int bodyLength) {}
+
+    private final boolean enabled;
+    private final Map<String, Validators> entries = new ConcurrentHashMap<>();
+    private final GroupCommitWriter.Log appendLog;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // Bộ đếm của cycle hiện tại, reset bởi cycleReport()
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder conditional = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder unchangedBody = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder totalSaved = new LongAdder();
+
+    public ValidatorCache(GroupCommitWriter writer) throws IOException {
+        this.enabled = ConfigLoader.isValidatorCacheEnabled();
+        long records = load();
+        this.appendLog = writer.open(FILE, records);
+        if (records > entries.size()) appendLog.compact(this::snapshot);
+    }
+
+    private long load() {
+        if (!Files.exists(FILE)) return 0;
+        long[] records = {0};
+        try (Stream<String> lines = Files.lines(FILE, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                records[0]++;
+                String[] f = line.split("\t", -1);
+                try {
+                    if (f.length == 1) {
+                        entries.remove(f[0]);
+                    } else if (f.length == 6) {
+                        entries.put(f[0], new Validators(orNull(f[1]), orNull(f[2]),
+                                Long.parseUnsignedLong(f[3], 16), Integer.parseInt(f[4])));
+                    }
+                } catch (NumberFormatException e) {
+                    log.warn("Skipping invalid line in validator log: {}", line);
+                }
+            });
+            log.info("Loaded validators for {} URLs from {} log records", entries.size(), records[0]);
+        } catch (IOException e) {
+            log.error("Error reading validator log", e);
+        }
+        return records[0];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True for URLs fetched through this cache before (hubs and seeds). */
+    public boolean contains(String url) {
+        return enabled && entries.containsKey(url);
+    }
+
+    /**
+     * Fetches the page, conditionally when validators are known. Returns null
+     * when it is unchanged since the last fetch (304 or same body hash) or
+     * when fetching failed; otherwise the page, whose validators are stored.
+     */
+    public FetchResult fetch(Fetcher fetcher, String url) {
+        if (!enabled) return fetcher.fetch(url);
+        Validators v = entries.get(url);
+        requests.increment();
+        FetchResult page;
+        if (v == null) {
+            page = fetcher.fetch(url);
+        } else {
+            conditional.increment();
+            page = fetcher.fetch(url, v.etag(), v.lastModified());
+        }
+        if (page == null) return null;
+        if (page.getStatus() == 304 && v != null) {
+            notModified.increment();
+            bytesSaved.add(v.bodyLength());
+            return null;
+        }
+        if (!page.isOk()) {
+            // Trang đã mất thì thôi theo dõi; lỗi 5xx tạm thời giữ validator
+            boolean gone = page.getStatus() == 404 || page.getStatus() == 410;
+            if (gone && entries.remove(url) != null) {
+                appendLog.append(url);
+                compactIfNeeded();
+            }
+            return page;
+        }
+        long hash = UrlFingerprint.of(page.getBody());
+        if (v != null && v.bodyHash() == hash) {
+            // Server không hỗ trợ validator nhưng nội dung y hệt: không cần lấy links lại
+            unchangedBody.increment();
+            store(url, page, hash);
+            return null;
+        }
+        store(url, page, hash);
+        return page;
+    }
+
+    /** Starts tracking a page fetched elsewhere that was admitted as a hub. */
+    public void remember(FetchResult page) {
+        if (!enabled || page == null || !page.isOk() || page.isHeadOnly()) return;
+        store(page.getUrl(), page, UrlFingerprint.of(page.getBody()));
+    }
+
+    private void store(String url, FetchResult page, long hash) {
+        Validators v = new Validators(page.getHeader("ETag"), page.getHeader("Last-Modified"), hash, page.getBody().length);
+        if (v.equals(entries.put(url, v))) return;
+        appendLog.append(line(url, v));
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        long records = appendLog.records();
+        if (records < MIN_COMPACT_RECORDS || records <= 2L * entries.size()) return;
+        if (!compacting.compareAndSet(false, true)) return;
+        appendLog.compact(this::snapshot).whenComplete((v, e) -> {
+            compacting.set(false);
+            if (e != null) log.error("Failed to compact validator log", e);
+            else log.info("Compacted validator log: {} -> {} records", records, appendLog.records());
+        });
+    }
+
+    private List<String> snapshot() {
+        List<String> lines = new ArrayList<>(entries.size());
+        entries.forEach((url, v) -> lines.add(line(url, v)));
+        return lines;
+    }
+
+    private static String line(String url, Validators v) {
+        return url + "\t" + orDash(v.etag()) + "\t" + orDash(v.lastModified()) + "\t"
+                + Long.toHexString(v.bodyHash()) + "\t" + v.bodyLength() + "\t" + System.currentTimeMillis();
+    }
+
+    private static String orDash(String s) {
+        return s == null || s.isEmpty() ? "-" : s.replace('\t', ' ');
+    }
+
+    private static String orNull(String s) {
+        return s.equals("-") ? null : s;
+    }
+
+    /** Summary of the cycle since the previous call; resets the cycle counters. */
+    public String cycleReport() {
+        if (!enabled) return "disabled";
+        long nm = notModified.sumThenReset();
+        long same = unchangedBody.sumThenReset();
+        totalSaved.add(nm + same);
+        return String.format("requests=%d, conditional=%d, notModified=%d, unchangedBody=%d, "
+                        + "extractionsSaved=%d, bytesSaved=%d, tracked=%d, extractionsSavedTotal=%d",
+                requests.sumThenReset(), conditional.sumThenReset(), nm, same, nm + same,
+                bytesSaved.sumThenReset(), entries.size(), totalSaved.sum());
+    }
+}
@@ -1,8 +1,11 @@
 package com.dantri.crawler.job;
 
 import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.dedup.NearDuplicateDetector;
+import com.dantri.crawler.discovery.FeedDiscovery;
+import com.dantri.crawler.fetch.ValidatorCache;
 import com.dantri.crawler.queue.CrawlQueueManager;
-import com.dantri.crawler.queue.UrlTask;
+import com.dantri.crawler.worker.CrawlWorker;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.slf4j.Logger;
@@ -16,10 +19,25 @@ public class CrawlJob implements Job {
         try {
             CrawlQueueManager q = (CrawlQueueManager)context.getJobDetail()
                     .getJobDataMap().get("queueManager");
-            ConfigLoader.getStartUrls().forEach(u -> {
-                q.pushTask(new UrlTask(u,0));
-                log.info("Scheduled startUrl: {}", u);
-            });
+            FeedDiscovery discovery = (FeedDiscovery)context.getJobDetail()
+                    .getJobDataMap().get("discovery");
+            ValidatorCache validators = (ValidatorCache)context.getJobDetail()
+                    .getJobDataMap().get("validatorCache");
+            NearDuplicateDetector nearDup = (NearDuplicateDetector)context.getJobDetail()
+                    .getJobDataMap().get("nearDup");
+            q.newCycle();
+            log.info("Conditional GET, last cycle: {}", validators.cycleReport());
+            log.info("URL pre-filter: {}", context.getJobDetail().getJobDataMap().get("preFilter"));
+            log.info("Head-first extraction: {}", CrawlWorker.stagedStats());
+            log.info("URL classifier: {}", context.getJobDetail().getJobDataMap().get("urlClassifier"));
+            log.info("Feed discovery: {}", discovery);
+            // Fingerprint quá retentionDays bị bỏ trong lúc chạy, không chỉ khi khởi động
+            int expired = nearDup.expire();
+            log.info("Near-duplicate index: {} fingerprints, {} expired this cycle, {} duplicates so far",
+                    nearDup.size(), expired, nearDup.getDuplicateCount());
+            // Seeds và trang chuyên mục do HubScheduler đẩy theo tốc độ thay đổi
+            log.info("Hub scheduler: {}", context.getJobDetail().getJobDataMap().get("hubScheduler"));
+            discovery.poll(ConfigLoader.getStartUrls());
         } catch (Exception e) {
             log.error("CrawlJob error", e);
         }
@@ -0,0 +1,44 @@
+package com.dantri.crawler.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter, optionally split by label values. Children are created
+ * on first use and cached, so {@code labels(host).inc()} costs one map lookup
+ * and a {@link LongAdder} increment.
+ */
+public final class Counter extends Metric {
+    private final Map<String, LongAdder> children = new ConcurrentHashMap<>();
+
+    Counter(String name, String help, String[] labelNames) {
+        super(name, help, labelNames);
+    }
+
+    public void inc() {
+        labels().increment();
+    }
+
+    public void add(long n) {
+        labels().add(n);
+    }
+
+    /** The child for these label values, in the order the label names were declared. */
+    public LongAdder labels(String... values) {
+        return children.computeIfAbsent(key(values), k -> new LongAdder());
+    }
+
+    /** Sum over all label values. */
+    public long total() {
+        long n = 0;
+        for (LongAdder a : children.values()) n += a.sum();
+        return n;
+    }
+
+    @Override
+    void write(StringBuilder out) {
+        header(out, "counter");
+        children.forEach((k, v) -> sample(out, name, k, null, v.sum()));
+    }
+}
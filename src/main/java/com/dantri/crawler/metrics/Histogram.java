@@ -0,0 +1,117 @@
+package com.dantri.crawler.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HDR-style histogram of non-negative long values (usually nanoseconds).
+ * <p>
+ * Buckets are log-linear: values below 16 are exact, above that every
+ * power-of-two range is split into 8 sub-buckets, so any recorded value is
+ * off by at most 12.5% over the whole long range with 488 fixed counters and
+ * no allocation or locking on record. Exported as a Prometheus summary
+ * (lifetime quantiles plus _sum and _count); values are multiplied by scale
+ * on export, e.g. 1e-9 to report nanoseconds as seconds.
+ */
+public final class Histogram extends Metric {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int LINEAR = SUB * 2;
+    private static final int BUCKETS = LINEAR + (63 - (SUB_BITS + 1)) * SUB;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final double scale;
+    private final Map<String, Child> children = new ConcurrentHashMap<>();
+
+    Histogram(String name, String help, double scale, String[] labelNames) {
+        super(name, help, labelNames);
+        this.scale = scale;
+    }
+
+    public Child labels(String... values) {
+        return children.computeIfAbsent(key(values), k -> new Child());
+    }
+
+    public void record(long value) {
+        labels().record(value);
+    }
+
+    /** Snapshot of all label values added together, e.g. latency over every host. */
+    public Child merged() {
+        Child all = new Child();
+        for (Child c : children.values()) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long n = c.counts.get(i);
+                if (n != 0) all.counts.addAndGet(i, n);
+            }
+            all.count.add(c.count.sum());
+            all.sum.add(c.sum.sum());
+        }
+        return all;
+    }
+
+    static int bucketOf(long v) {
+        if (v < LINEAR) return (int) Math.max(0, v);
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (e - SUB_BITS)) & (SUB - 1);
+        return LINEAR + (e - SUB_BITS - 1) * SUB + sub;
+    }
+
+    /** Highest value that falls into the bucket. */
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int e = (bucket - LINEAR) / SUB + SUB_BITS + 1;
+        long sub = (bucket - LINEAR) % SUB;
+        long width = 1L << (e - SUB_BITS);
+        return ((SUB + sub) << (e - SUB_BITS)) + width - 1;
+    }
+
+    @Override
+    void write(StringBuilder out) {
+        header(out, "summary");
+        children.forEach((k, c) -> {
+            for (double q : QUANTILES) {
+                sample(out, name, k, "quantile=\"" + q + "\"", c.quantile(q) * scale);
+            }
+            sample(out, name + "_sum", k, null, c.sum.sum() * scale);
+            sample(out, name + "_count", k, null, c.count.sum());
+        });
+    }
+
+    public static final class Child {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        public void record(long value) {
+            counts.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+        }
+
+        /** Convenience for timings: records System.nanoTime() - startNanos. */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        /** Upper bound of the bucket holding the q-quantile; 0 when empty. */
+        public long quantile(double q) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return upperBound(i);
+            }
+            return upperBound(BUCKETS - 1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.dantri.crawler.metrics;
+
+/**
+ * Base of the registry's metric types: name, help, label names and the
+ * Prometheus text exposition helpers. Label values of a child are joined into
+ * one map key with \u0001, which never appears in hosts or layer names.
+ */
+abstract class Metric {
+    private static final String SEP = "\u0001";
+
+    final String name;
+    final String help;
+    final String[] labelNames;
+
+    Metric(String name, String help, String[] labelNames) {
+        this.name = name;
+        this.help = help;
+        this.labelNames = labelNames;
+    }
+
+    String key(String[] values) {
+        if (values.length != labelNames.length) {
+            throw new IllegalArgumentException(name + " expects labels " + String.join(",", labelNames));
+        }
+        if (values.length == 0) return "";
+        if (values.length == 1) return values[0] == null ? "" : values[0];
+        return String.join(SEP, values);
+    }
+
+    abstract void write(StringBuilder out);
+
+    void header(StringBuilder out, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /** One sample line; extra is an additional label such as quantile="0.99". */
+    void sample(StringBuilder out, String sampleName, String key, String extra, double value) {
+        out.append(sampleName);
+        if (labelNames.length > 0 || extra != null) {
+            out.append('{');
+            String[] values = labelNames.length <= 1 ? new String[]{key} : key.split(SEP, -1);
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) out.append(',');
+                out.append(labelNames[i]).append("=\"").append(escape(values[i])).append('"');
+            }
+            if (extra != null) {
+                if (labelNames.length > 0) out.append(',');
+                out.append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+    }
+
+    private static String escape(String v) {
+        return v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,68 @@
+package com.dantri.crawler.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide metric registry. Instrumented classes keep the returned
+ * counters / histograms in static fields; components with their own state
+ * register gauges that are read at scrape time. Registering a name again
+ * returns the existing counter or histogram, and replaces a gauge.
+ */
+public final class Metrics {
+    private static final Map<String, Metric> REGISTRY = new ConcurrentSkipListMap<>();
+
+    private Metrics() {}
+
+    public static Counter counter(String name, String help, String... labelNames) {
+        return (Counter) REGISTRY.computeIfAbsent(name, n -> new Counter(n, help, labelNames));
+    }
+
+    /** Histogram exported with values multiplied by scale (1e-9 for nanoseconds to seconds). */
+    public static Histogram histogram(String name, String help, double scale, String... labelNames) {
+        return (Histogram) REGISTRY.computeIfAbsent(name, n -> new Histogram(n, help, scale, labelNames));
+    }
+
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        REGISTRY.put(name, new Gauge(name, help, "gauge", value));
+    }
+
+    /** Counter whose value is owned elsewhere (e.g. an existing AtomicLong). */
+    public static void counterFn(String name, String help, DoubleSupplier value) {
+        REGISTRY.put(name, new Gauge(name, help, "counter", value));
+    }
+
+    /** The registered counter, or null; for in-process readers such as the replay driver. */
+    public static Counter findCounter(String name) {
+        return REGISTRY.get(name) instanceof Counter c ? c : null;
+    }
+
+    public static Histogram findHistogram(String name) {
+        return REGISTRY.get(name) instanceof Histogram h ? h : null;
+    }
+
+    /** Prometheus text exposition format 0.0.4. */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        for (Metric m : REGISTRY.values()) m.write(out);
+        return out.toString();
+    }
+
+    private static final class Gauge extends Metric {
+        private final String type;
+        private final DoubleSupplier value;
+
+        Gauge(String name, String help, String type, DoubleSupplier value) {
+            super(name, help, new String[0]);
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        void write(StringBuilder out) {
+            header(out, type);
+            sample(out, name, "", null, value.getAsDouble());
+        }
+    }
+}
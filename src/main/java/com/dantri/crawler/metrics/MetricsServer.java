@@ -0,0 +1,47 @@
+package com.dantri.crawler.metrics;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link Metrics#scrape()} at {@code /metrics} on metrics.port using
+ * the JDK's built-in HTTP server, on one daemon thread.
+ */
+public class MetricsServer {
+    private static final Logger log = LoggerFactory.getLogger(MetricsServer.class);
+
+    private HttpServer server;
+
+    public void start() throws IOException {
+        if (!ConfigLoader.isMetricsEnabled()) return;
+        int port = ConfigLoader.getMetricsPort();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", ex -> {
+            byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        log.info("Metrics endpoint on http://localhost:{}/metrics", port);
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+    }
+}
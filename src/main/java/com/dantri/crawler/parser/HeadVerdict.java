@@ -0,0 +1,26 @@
+package com.dantri.crawler.parser;
+
+import java.util.Date;
+
+/**
+ * What the document head alone says about a page.
+ * publishTime is the date found in the head, or null.
+ */
+public record HeadVerdict(Kind kind, Date publishTime) {
+
+    public enum Kind {
+        /** Head declares an article (JSON-LD Article node, og:type article or a publish date). */
+        ARTICLE,
+        /** Head declares some other og:type and has no JSON-LD article node. */
+        NOT_ARTICLE,
+        /** Article published before the age cutoff. */
+        TOO_OLD,
+        /** Head says nothing useful; run the full cascade. */
+        UNKNOWN
+    }
+
+    /** True when the extraction cascade can be skipped. */
+    public boolean isSkip() {
+        return kind == Kind.NOT_ARTICLE || kind == Kind.TOO_OLD;
+    }
+}
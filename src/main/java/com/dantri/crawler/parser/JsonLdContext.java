@@ -0,0 +1,146 @@
+package com.dantri.crawler.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * All ld+json blocks of one page, parsed once.
+ * <p>
+ * A streaming parser reads only the fields the extraction cascade uses
+ * (@type, headline, description, articleBody, datePublished, dateModified,
+ * author name) and skips every other subtree without building it. Top-level
+ * arrays and {@code @graph} lists are flattened, so nodes are found however
+ * the site nests them.
+ */
+final class JsonLdContext {
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+            .build();
+
+    /** Fields of one JSON-LD node; null when absent. */
+    static final class Node {
+        final List<String> types = new ArrayList<>(1);
+        String headline;
+        String description;
+        String articleBody;
+        String datePublished;
+        String dateModified;
+        String author;
+
+        boolean isArticle() {
+            for (String t : types) {
+                if (t.equalsIgnoreCase("NewsArticle") || t.equalsIgnoreCase("Article")) return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<Node> articles = new ArrayList<>();
+
+    private JsonLdContext() {}
+
+    static JsonLdContext of(Document doc) {
+        JsonLdContext ctx = new JsonLdContext();
+        for (Element s : doc.select("script[type=application/ld+json]")) {
+            try (JsonParser p = FACTORY.createParser(s.data())) {
+                ctx.readValue(p, p.nextToken());
+            } catch (IOException ignored) {
+                // block lỗi: giữ lại các node đã đọc được trước chỗ lỗi
+            }
+        }
+        for (Node n : ctx.nodes) {
+            if (n.isArticle()) ctx.articles.add(n);
+        }
+        return ctx;
+    }
+
+    /** Every node in document order. */
+    List<Node> nodes() {
+        return nodes;
+    }
+
+    /** Article / NewsArticle nodes in document order. */
+    List<Node> articles() {
+        return articles;
+    }
+
+    private void readValue(JsonParser p, JsonToken t) throws IOException {
+        if (t == JsonToken.START_ARRAY) {
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) readValue(p, t);
+        } else if (t == JsonToken.START_OBJECT) {
+            readObject(p);
+        }
+    }
+
+    private void readObject(JsonParser p) throws IOException {
+        Node n = new Node();
+        int pos = nodes.size();
+        boolean useful = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken v = p.nextToken();
+            switch (field) {
+                case "@type" -> {
+                    if (v == JsonToken.START_ARRAY) {
+                        while ((v = p.nextToken()) != JsonToken.END_ARRAY && v != null) {
+                            if (v == JsonToken.VALUE_STRING) n.types.add(p.getText());
+                            else p.skipChildren();
+                        }
+                    } else if (v == JsonToken.VALUE_STRING) {
+                        n.types.add(p.getText());
+                    }
+                }
+                case "headline" -> n.headline = text(p, v);
+                case "description" -> n.description = text(p, v);
+                case "articleBody" -> n.articleBody = text(p, v);
+                case "datePublished" -> n.datePublished = text(p, v);
+                case "dateModified" -> n.dateModified = text(p, v);
+                case "author" -> n.author = readAuthor(p, v);
+                case "@graph" -> readValue(p, v);
+                default -> p.skipChildren();
+            }
+            useful |= !field.equals("@graph") && !field.equals("@context");
+        }
+        // node cha đứng trước các node trong @graph của nó
+        if (useful) nodes.add(pos, n);
+    }
+
+    private static String readAuthor(JsonParser p, JsonToken v) throws IOException {
+        if (v == JsonToken.VALUE_STRING) return p.getText();
+        if (v == JsonToken.START_OBJECT) {
+            String name = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken fv = p.nextToken();
+                if (field.equals("name") && fv == JsonToken.VALUE_STRING) name = p.getText();
+                else p.skipChildren();
+            }
+            return name;
+        }
+        if (v == JsonToken.START_ARRAY) {
+            String first = null;
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                if (first == null) first = readAuthor(p, t);
+                else p.skipChildren();
+            }
+            return first;
+        }
+        return null;
+    }
+
+    private static String text(JsonParser p, JsonToken v) throws IOException {
+        if (v.isScalarValue()) return v == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+        p.skipChildren();
+        return null;
+    }
+}
@@ -2,10 +2,10 @@ package com.dantri.crawler.parser;
 
 import com.dantri.crawler.config.ConfigLoader;
 import com.dantri.crawler.domain.Article;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.dantri.crawler.fetch.FetchResult;
+import com.dantri.crawler.metrics.Histogram;
+import com.dantri.crawler.metrics.Metrics;
 import de.l3s.boilerpipe.extractors.ArticleExtractor;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.parser.Parser;
@@ -22,10 +22,10 @@ import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class UniversalArticleParser {
     private static final Logger log = LoggerFactory.getLogger(UniversalArticleParser.class);
-    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private static final DateTimeFormatter[] DATE_FORMATTERS = {
             DateTimeFormatter.ISO_OFFSET_DATE_TIME,
@@ -43,8 +43,18 @@ public class UniversalArticleParser {
                     "(\\d{1,2}/\\d{1,2}/\\d{4}\\s+\\d{1,2}:\\d{2}|\\w+\\s+\\d{1,2},\\s*\\d{4})",
             Pattern.CASE_INSENSITIVE
     );
+    private static final Histogram STAGES = Metrics.histogram("crawler_parse_stage_seconds",
+            "Time per extraction stage (DOM build, content layers, dates/author, tag fallback)", 1e-9, "stage");
+    private static final Histogram.Child T_DOM = STAGES.labels("DOM");
+    private static final Histogram.Child T_JSON_LD = STAGES.labels("JSON-LD");
+    private static final Histogram.Child T_META = STAGES.labels("Meta");
+    private static final Histogram.Child T_BOILERPIPE = STAGES.labels("Boilerpipe");
+    private static final Histogram.Child T_FIELDS = STAGES.labels("Date+Author");
+    private static final Histogram.Child T_TAGS = STAGES.labels("+Tags");
     private static final int MIN_BODY_LEN = ConfigLoader.getMinBodyLength();
     private static final int MIN_TAG_LEN  = ConfigLoader.getMinTagLength();
+    private static final Set<String> ARTICLE_OG_TYPES = ConfigLoader.getHeadFirstArticleOgTypes().stream()
+            .map(t -> t.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
 
     private String normalizeOffset(String raw) {
         if (raw == null) return null;
@@ -55,7 +65,7 @@ public class UniversalArticleParser {
         return s;
     }
 
-    private OffsetDateTime tryParseOffset(String raw) {
+    OffsetDateTime tryParseOffset(String raw) {
         raw = normalizeOffset(raw);
         if (raw == null || raw.isBlank()) return null;
         for (var fmt : DATE_FORMATTERS) {
@@ -66,24 +76,76 @@ public class UniversalArticleParser {
         return null;
     }
 
-    public Article parseUrl(String url) {
+    /**
+     * Stage one: classifies a page from its head only (JSON-LD, og:type,
+     * article:published_time, date meta tags). Cheap enough to run before the
+     * body is downloaded; works on a full page as well.
+     */
+    public HeadVerdict inspectHead(FetchResult page, long maxAgeMs) {
+        if (page == null || !page.isOk()) return new HeadVerdict(HeadVerdict.Kind.UNKNOWN, null);
+        Document doc = page.getDocument();
+        JsonLdContext ld = JsonLdContext.of(doc);
+        boolean ldArticle = !ld.articles().isEmpty();
+        Element og = doc.selectFirst("meta[property=og:type]");
+        String ogType = og != null ? og.attr("content").trim().toLowerCase(Locale.ROOT) : "";
+
+        if (!ldArticle && !ogType.isEmpty() && !ARTICLE_OG_TYPES.contains(ogType)) {
+            return new HeadVerdict(HeadVerdict.Kind.NOT_ARTICLE, null);
+        }
+        Date pub = firstDate(ld.articles());
+        if (pub == null) pub = extractDateFromHeadMeta(doc);
+        if (pub != null && System.currentTimeMillis() - pub.getTime() > maxAgeMs) {
+            return new HeadVerdict(HeadVerdict.Kind.TOO_OLD, pub);
+        }
+        if (ldArticle || ARTICLE_OG_TYPES.contains(ogType) || pub != null) {
+            return new HeadVerdict(HeadVerdict.Kind.ARTICLE, pub);
+        }
+        return new HeadVerdict(HeadVerdict.Kind.UNKNOWN, null);
+    }
+
+    private Date extractDateFromHeadMeta(Document doc) {
+        Element t = doc.selectFirst("meta[property=article:published_time],meta[itemprop=datePublished],"
+                + "meta[name=pubdate],meta[name=date]");
+        if (t != null) {
+            OffsetDateTime odt = tryParseOffset(clean(t.attr("content")));
+            if (odt != null) {
+                return Date.from(odt.atZoneSameInstant(ZoneId.systemDefault()).toInstant());
+            }
+        }
+        return null;
+    }
+
+    /** Runs the extraction cascade on an already fetched page; no network access. */
+    public Article parse(FetchResult page) {
+        if (page == null || !page.isOk()) return null;
+        String url = page.getUrl();
         try {
-            Thread.sleep(200);
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0")
-                    .referrer("https://www.google.com")
-                    .timeout(10000)
-                    .get();
+            // DOM thường đã được dựng trước đó (canonical, head): ghi thời gian dựng thật, không phải lần lấy lại
+            Document doc = page.getDocument();
+            T_DOM.record(page.getDocumentNanos());
+            // ld+json chỉ parse 1 lần cho cả content, date và author
+            long t = System.nanoTime();
+            JsonLdContext ld = JsonLdContext.of(doc);
 
             // Content layer
-            Article art = parseJsonLdContent(doc, url);
+            Article art = parseJsonLdContent(ld, url);
+            T_JSON_LD.recordSince(t);
 //            if (art == null) art = parseOgContent(doc, url);
-            if (art == null) art = parseMetaContent(doc, url);
-            if (art == null) art = parseBoilerpipeContent(doc, url);
+            if (art == null) {
+                t = System.nanoTime();
+                art = parseMetaContent(doc, url);
+                T_META.recordSince(t);
+            }
+            if (art == null) {
+                t = System.nanoTime();
+                art = parseBoilerpipeContent(doc, url);
+                T_BOILERPIPE.recordSince(t);
+            }
             if (art == null) return null;
 
             // Lấy ra publishTime
-            Date pub = extractDateFromJsonLd(doc);
+            t = System.nanoTime();
+            Date pub = extractDateFromJsonLd(ld);
             if (pub == null) pub = extractDateFromTimeTag(doc);
 //            if (pub == null) pub = extractDateFromOg(doc);
             if (pub == null) pub = extractDateFromMeta(doc);
@@ -91,14 +153,17 @@ public class UniversalArticleParser {
             art.setPublishTime(pub);
 
             // Author
-            String author = extractAuthorFromJsonLd(doc);
+            String author = extractAuthorFromJsonLd(ld);
             if (author == null) author = extractAuthorFromMeta(doc);
             if (author == null) author = extractAuthorFromText(doc);
             art.setAuthor(author);
+            T_FIELDS.recordSince(t);
 
             // 4) Fallback tags for content
             if (art.getContent() == null || art.getContent().length() < MIN_BODY_LEN) {
+                t = System.nanoTime();
                 String fb = extractByTags(doc);
+                T_TAGS.recordSince(t);
                 if (fb.length() >= MIN_TAG_LEN) {
                     art.setContent(fb);
                     art.setParseLayer(art.getParseLayer() + "+Tags");
@@ -110,32 +175,23 @@ public class UniversalArticleParser {
             return art;
 
         } catch (Exception e) {
-            log.debug("parseUrl error [{}]: {}", url, e.getMessage());
+            log.debug("parse error [{}]: {}", url, e.getMessage());
             return null;
         }
     }
 
-    private Article parseJsonLdContent(Document doc, String url) {
-        for (Element s : doc.select("script[type=application/ld+json]")) {
-            try {
-                JsonNode root = MAPPER.readTree(s.html());
-                List<JsonNode> nodes = root.isArray() ? new ArrayList<>() : List.of(root);
-                if (root.isArray()) root.forEach(nodes::add);
-                for (JsonNode n : nodes) {
-                    String type = n.path("@type").asText("");
-                    if (!type.equalsIgnoreCase("NewsArticle") && !type.equalsIgnoreCase("Article"))
-                        continue;
-                    Article a = new Article();
-                    a.setUrl(url);
-                    a.setParseLayer("JSON-LD");
-                    a.setTitle(clean(n.path("headline").asText("")));
-                    a.setDescription(clean(n.path("description").asText("")));
-                    if (n.has("articleBody")) {
-                        a.setContent(clean(n.get("articleBody").asText("")));
-                    }
-                    return a;
-                }
-            } catch (Exception ignored) {}
+    // Các layer để package-private cho benchmarks/ đo riêng từng layer
+    Article parseJsonLdContent(JsonLdContext ld, String url) {
+        for (JsonLdContext.Node n : ld.articles()) {
+            Article a = new Article();
+            a.setUrl(url);
+            a.setParseLayer("JSON-LD");
+            a.setTitle(clean(n.headline));
+            a.setDescription(clean(n.description));
+            if (n.articleBody != null) {
+                a.setContent(clean(n.articleBody));
+            }
+            return a;
         }
         return null;
     }
@@ -156,7 +212,7 @@ public class UniversalArticleParser {
 //        return a;
 //    }
 
-    private Article parseMetaContent(Document doc, String url) {
+    Article parseMetaContent(Document doc, String url) {
         String title = clean(doc.title());
         if (title.isBlank()) return null;
         Article a = new Article();
@@ -170,7 +226,7 @@ public class UniversalArticleParser {
         return a;
     }
 
-    private Article parseBoilerpipeContent(Document doc, String url) {
+    Article parseBoilerpipeContent(Document doc, String url) {
         try {
             String text = ArticleExtractor.INSTANCE.getText(doc.html());
             if (text == null || text.length() < MIN_BODY_LEN) return null;
@@ -189,21 +245,20 @@ public class UniversalArticleParser {
     }
 
 
-    private Date extractDateFromJsonLd(Document doc) {
-        for (Element s : doc.select("script[type=application/ld+json]")) {
-            try {
-                JsonNode root = MAPPER.readTree(s.html());
-                List<JsonNode> nodes = root.isArray() ? new ArrayList<>() : List.of(root);
-                if (root.isArray()) root.forEach(nodes::add);
-                for (JsonNode n : nodes) {
-                    String dp = clean(n.path("datePublished").asText(""));
-                    String dm = clean(n.path("dateModified").asText(""));
-                    OffsetDateTime odt = tryParseOffset(!dp.isBlank() ? dp : dm);
-                    if (odt != null) {
-                        return Date.from(odt.atZoneSameInstant(ZoneId.systemDefault()).toInstant());
-                    }
-                }
-            } catch (Exception ignored) {}
+    private Date extractDateFromJsonLd(JsonLdContext ld) {
+        // Ưu tiên node Article/NewsArticle, sau đó tới các node còn lại
+        Date d = firstDate(ld.articles());
+        return d != null ? d : firstDate(ld.nodes());
+    }
+
+    private Date firstDate(List<JsonLdContext.Node> nodes) {
+        for (JsonLdContext.Node n : nodes) {
+            String dp = clean(n.datePublished);
+            String dm = clean(n.dateModified);
+            OffsetDateTime odt = tryParseOffset(!dp.isBlank() ? dp : dm);
+            if (odt != null) {
+                return Date.from(odt.atZoneSameInstant(ZoneId.systemDefault()).toInstant());
+            }
         }
         return null;
     }
@@ -252,22 +307,14 @@ public class UniversalArticleParser {
         return null;
     }
 
-    private String extractAuthorFromJsonLd(Document doc) {
-        for (Element s : doc.select("script[type=application/ld+json]")) {
-            try {
-                JsonNode root = MAPPER.readTree(s.html());
-                List<JsonNode> nodes = root.isArray() ? new ArrayList<>() : List.of(root);
-                if (root.isArray()) root.forEach(nodes::add);
-                for (JsonNode n : nodes) {
-                    if (n.has("author")) {
-                        JsonNode auth = n.get("author");
-                        String name = auth.isArray() ?
-                                auth.get(0).path("name").asText("") :
-                                auth.path("name").asText("");
-                        if (!name.isBlank()) return clean(name);
-                    }
-                }
-            } catch (Exception ignored) {}
+    private String extractAuthorFromJsonLd(JsonLdContext ld) {
+        String a = firstAuthor(ld.articles());
+        return a != null ? a : firstAuthor(ld.nodes());
+    }
+
+    private String firstAuthor(List<JsonLdContext.Node> nodes) {
+        for (JsonLdContext.Node n : nodes) {
+            if (n.author != null && !n.author.isBlank()) return clean(n.author);
         }
         return null;
     }
@@ -318,7 +365,7 @@ public class UniversalArticleParser {
         return "";
     }
 
-    private String clean(String s) {
+    String clean(String s) {
         if (s == null) return "";
         return Parser.unescapeEntities(s.trim().replaceAll("\\s+", " "), true);
     }
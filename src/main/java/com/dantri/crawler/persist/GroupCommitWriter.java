@@ -0,0 +1,287 @@
+package com.dantri.crawler.persist;
+
+import com.dantri.crawler.config.ConfigLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous group-commit writer for line-oriented append logs.
+ * <p>
+ * Callers only enqueue; one writer thread drains up to {@code batchSize}
+ * records or whatever arrived within {@code flushIntervalMs}, encodes them and
+ * issues a single {@link FileChannel} write per log per batch. Durability is set
+ * by the fsync policy: "never" (page cache only), "batch" (force after every
+ * batch) or "interval" (force at most every fsyncIntervalMs).
+ * Compaction requests go through the same queue, so they are ordered with
+ * respect to appends and never block callers either. A write that fails only
+ * loses that log's part of the batch; the other logs are still written.
+ */
+public class GroupCommitWriter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final String fsyncPolicy;
+    private final long fsyncIntervalMs;
+    private final LinkedBlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final List<Log> logs = new ArrayList<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private long lastFsync = System.currentTimeMillis();
+
+    public GroupCommitWriter(int batchSize, long flushIntervalMs, String fsyncPolicy, long fsyncIntervalMs) {
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.fsyncPolicy = fsyncPolicy.toLowerCase(Locale.ROOT);
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.writer = new Thread(this::run, "group-commit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static GroupCommitWriter fromConfig() {
+        return new GroupCommitWriter(
+                ConfigLoader.getPersistBatchSize(),
+                ConfigLoader.getPersistFlushIntervalMs(),
+                ConfigLoader.getPersistFsync(),
+                ConfigLoader.getPersistFsyncIntervalMs());
+    }
+
+    /** Opens (creating if needed) an append log served by this writer. */
+    public Log open(Path file, long existingRecords) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Log l = new Log(file, existingRecords);
+        synchronized (logs) {
+            logs.add(l);
+        }
+        return l;
+    }
+
+    private void run() {
+        List<Op> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Op first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.currentTimeMillis() + flushIntervalMs;
+                    // Gom thêm record tới khi đủ batch hoặc hết thời gian chờ
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long wait = deadline - System.currentTimeMillis();
+                        if (batch.size() >= batchSize || wait <= 0) break;
+                        Op next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                        if (next == null) break;
+                        batch.add(next);
+                    }
+                    process(batch);
+                    batch.clear();
+                }
+                maybeFsync(false);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.error("Group commit failed, {} records lost", batch.size(), e);
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Op> batch) {
+        Map<Log, Pending> pending = new LinkedHashMap<>();
+        for (Op op : batch) {
+            if (op.line != null) {
+                pending.computeIfAbsent(op.log, k -> new Pending()).add(op.line);
+            } else {
+                // Compaction: ghi hết phần đang chờ của log này trước
+                Pending p = pending.remove(op.log);
+                if (p != null) op.log.writeQuietly(p);
+                try {
+                    op.log.rewrite(op.snapshot.get());
+                    op.done.complete(null);
+                } catch (Exception e) {
+                    op.done.completeExceptionally(e);
+                }
+            }
+        }
+        for (Map.Entry<Log, Pending> e : pending.entrySet()) {
+            e.getKey().writeQuietly(e.getValue());
+        }
+        if (fsyncPolicy.equals("batch")) maybeFsync(true);
+    }
+
+    private void maybeFsync(boolean force) {
+        if (fsyncPolicy.equals("never")) return;
+        long now = System.currentTimeMillis();
+        if (!force && (!fsyncPolicy.equals("interval") || now - lastFsync < fsyncIntervalMs)) return;
+        synchronized (logs) {
+            for (Log l : logs) l.fsyncQuietly();
+        }
+        lastFsync = now;
+    }
+
+    /**
+     * Stops accepting records, waits for the writer to drain everything queued
+     * so far, then fsyncs and closes all logs.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true; // vẫn phải đợi writer xong mới được đóng channel
+            }
+        }
+        // Record lọt vào queue ngay lúc writer thoát: ghi nốt trên thread này
+        List<Op> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) process(rest);
+        IOException failure = null;
+        synchronized (logs) {
+            for (Log l : logs) {
+                try {
+                    l.fsync();
+                    l.channel.close();
+                } catch (IOException e) {
+                    log.error("Failed to close {}", l.file, e);
+                    if (failure == null) failure = e;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure != null) throw failure;
+    }
+
+    /** Lines of one batch for one log. */
+    private static final class Pending {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int lines;
+
+        void add(String line) {
+            buf.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+            buf.write('\n');
+            lines++;
+        }
+    }
+
+    /** One append log file; all I/O happens on the writer thread. */
+    public class Log {
+        private final Path file;
+        private FileChannel channel;
+        private boolean dirty;
+        private volatile long records;
+
+        private Log(Path file, long existingRecords) throws IOException {
+            this.file = file;
+            this.channel = openChannel(file);
+            this.records = existingRecords;
+        }
+
+        /** Queues one line; never blocks on disk. Lines appended after close are dropped. */
+        public void append(String line) {
+            if (!running) {
+                log.warn("{} is closed, dropping record", file);
+                return;
+            }
+            queue.add(new Op(this, line, null));
+        }
+
+        /**
+         * Replaces the file with the snapshot, evaluated on the writer thread after
+         * every line queued before this call has been written.
+         */
+        public CompletableFuture<Void> compact(Supplier<Collection<String>> snapshot) {
+            Op op = new Op(this, null, snapshot);
+            queue.add(op);
+            return op.done;
+        }
+
+        /** Lines written to the file so far (queued lines not included). */
+        public long records() {
+            return records;
+        }
+
+        private void writeQuietly(Pending p) {
+            ByteBuffer bb = ByteBuffer.wrap(p.buf.toByteArray());
+            try {
+                while (bb.hasRemaining()) channel.write(bb);
+                records += p.lines;
+            } catch (IOException e) {
+                log.error("Append to {} failed, {} records lost", file, p.lines, e);
+            } finally {
+                dirty = true;
+            }
+        }
+
+        private void rewrite(Collection<String> lines) throws IOException {
+            Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+            try {
+                Files.write(tmp, lines, StandardCharsets.UTF_8);
+                channel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                records = lines.size();
+            } finally {
+                // Compact lỗi thì log vẫn ghi tiếp được, chỉ là chưa gọn
+                if (!channel.isOpen()) channel = openChannel(file);
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private void fsync() throws IOException {
+            if (dirty && channel.isOpen()) {
+                channel.force(false);
+                dirty = false;
+            }
+        }
+
+        private void fsyncQuietly() {
+            try {
+                fsync();
+            } catch (IOException e) {
+                log.error("fsync of {} failed", file, e);
+            }
+        }
+    }
+
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static final class Op {
+        final Log log;
+        final String line;
+        final Supplier<Collection<String>> snapshot;
+        final CompletableFuture<Void> done;
+
+        Op(Log log, String line, Supplier<Collection<String>> snapshot) {
+            this.log = log;
+            this.line = line;
+            this.snapshot = snapshot;
+            this.done = snapshot != null ? new CompletableFuture<>() : null;
+        }
+    }
+}
@@ -1,28 +1,399 @@
 package com.dantri.crawler.queue;
 
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Host-aware priority frontier.
+ * <p>
+ * Every task gets a score from the {@link FrontierScorer} when it is pushed
+ * (crawl level, predicted article probability, discovery time). Each host
+ * keeps its tasks ordered by score and has a next-allowed-fetch time driven by
+ * {@link PolitenessPolicy}. {@link #takeTask()} hands out the best task among
+ * hosts that are ready, so workers only wait when every host with pending work
+ * is still inside its politeness window. A host with {@code maxPerHost} tasks
+ * in flight is parked until {@link #taskDone(UrlTask)} is called for one of them.
+ * <p>
+ * At most {@code capacity} tasks are held in memory. Beyond that the lowest
+ * scored task (the new one or the current worst in memory) is spilled to
+ * sorted runs on disk ({@link SpillStore}) instead of being dropped, and the
+ * best spilled tasks are merged back as memory drains.
+ * Discovered links go through {@link #pushIfUnseen(UrlTask)} so each URL enters
+ * the frontier at most once per crawl cycle.
+ * <p>
+ * With frontierJournal enabled every push and every {@link #taskDone(UrlTask)}
+ * is logged to a {@link FrontierJournal}; on startup the unfinished tasks
+ * (queued, spilled or in flight at shutdown) are replayed into the frontier.
+ */
 public class CrawlQueueManager {
     private static final Logger log = LoggerFactory.getLogger(CrawlQueueManager.class);
-    private final BlockingQueue<UrlTask> queue;
+    private static final Path SPILL_DIR = Paths.get("data/frontier-spill");
+    private static final Path JOURNAL_DIR = Paths.get("data/frontier");
 
-    public CrawlQueueManager(int cap) {
-        queue = new LinkedBlockingQueue<>(cap);
-        log.info("Queue capacity = {}", cap);
+    private final int capacity;
+    private final int refillBelow;
+    private final PolitenessPolicy politeness;
+    private final FrontierScorer scorer;
+    private final int maxPerHost;
+    private final SpillStore spill;
+    private final FrontierJournal journal;
+    private final FrontierDedup dedup = new FrontierDedup();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    // Toàn bộ task trong RAM, task tệ nhất đứng cuối để spill
+    private final TreeSet<UrlTask> inMemory = new TreeSet<>(SpillStore.BEST_FIRST);
+    // Host đã hết thời gian chờ, xếp theo task tốt nhất
+    private final PriorityQueue<HostQueue> ready =
+            new PriorityQueue<>(Comparator.comparing((HostQueue h) -> h.tasks.first(), SpillStore.BEST_FIRST));
+    // Host còn trong politeness window, xếp theo thời điểm được fetch
+    private final PriorityQueue<HostQueue> waiting =
+            new PriorityQueue<>(Comparator.comparingLong(h -> h.nextFetchAt));
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private boolean stopped; // guarded by lock
+    private long nextSeq;
+
+    public CrawlQueueManager(int cap) throws IOException {
+        this(cap, PolitenessPolicy.fromConfig(), FrontierScorer.fromConfig(), ConfigLoader.getMaxPerHost(),
+                new SpillStore(SPILL_DIR, ConfigLoader.getFrontierSpillRunSize()),
+                ConfigLoader.isFrontierJournalEnabled()
+                        ? new FrontierJournal(JOURNAL_DIR, ConfigLoader.getFrontierJournalSegmentBytes(),
+                        ConfigLoader.getFrontierJournalMaxSegments(),
+                        ConfigLoader.getFrontierJournalCheckpointIntervalMs())
+                        : null);
+    }
+
+    CrawlQueueManager(int cap, PolitenessPolicy politeness, FrontierScorer scorer, int maxPerHost,
+                      SpillStore spill, FrontierJournal journal) throws IOException {
+        this.capacity = cap;
+        this.refillBelow = Math.max(1, cap * 3 / 4);
+        this.politeness = politeness;
+        this.scorer = scorer;
+        this.maxPerHost = maxPerHost;
+        this.spill = spill;
+        this.journal = journal;
+        log.info("Queue capacity = {} in memory (overflow spills to {}), maxPerHost = {}", cap, SPILL_DIR, maxPerHost);
+        if (journal != null) restore(journal.recover());
+    }
+
+    /**
+     * Exposes frontier gauges and counters on the metrics endpoint. Called once
+     * the queue is fully built, so a scrape never sees a half-initialised queue.
+     */
+    public void registerMetrics() {
+        Metrics.gauge("crawler_frontier_in_memory", "Frontier tasks held in memory", this::size);
+        Metrics.gauge("crawler_frontier_spilled", "Frontier tasks spilled to disk", this::spilledSize);
+        Metrics.counterFn("crawler_frontier_spilled_total", "Tasks ever spilled to disk", spilled::get);
+        Metrics.counterFn("crawler_frontier_dropped_total", "Tasks lost because spilling failed", dropped::get);
+        Metrics.counterFn("crawler_frontier_duplicates_total", "Pushes skipped as already admitted this cycle", duplicates::get);
+    }
+
+    /** Puts replayed tasks back with their original seq; they count as admitted for this cycle. */
+    private void restore(List<UrlTask> tasks) {
+        lock.lock();
+        try {
+            for (UrlTask t : tasks) {
+                dedup.tryAdmit(t.getUrl());
+                t.score = scorer.score(t);
+                place(t);
+            }
+            nextSeq = Math.max(nextSeq, journal.nextSeq());
+            if (!tasks.isEmpty()) {
+                log.info("Frontier restored {} tasks ({} in memory, {} spilled)", tasks.size(), inMemory.size(), spill.size());
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public void pushTask(UrlTask t) {
-        if (!queue.offer(t)) {
-            if (log.isDebugEnabled()) log.debug("Drop URL, queue full: {}", t.getUrl());
+    /**
+     * Enqueues without dedup (seeds). Returns false only if the task had to be
+     * spilled and the spill failed.
+     */
+    public boolean pushTask(UrlTask t) {
+        lock.lock();
+        try {
+            t.score = scorer.score(t);
+            t.seq = nextSeq++;
+            if (!place(t)) return false;
+            if (journal != null) journal.enqueued(List.of(t));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Enqueues unless the URL was already admitted in this crawl cycle. */
+    public boolean pushIfUnseen(UrlTask t) {
+        if (!dedup.tryAdmit(t.getUrl())) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        if (!pushTask(t)) {
+            // Cho phép thử lại sau
+            dedup.forget(t.getUrl());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Batched {@link #pushIfUnseen(UrlTask)}: one lock round and one journal
+     * append for all links of a page. Returns how many tasks were enqueued.
+     */
+    public int pushAllIfUnseen(List<UrlTask> tasks) {
+        List<UrlTask> admitted = new ArrayList<>(tasks.size());
+        for (UrlTask t : tasks) {
+            if (dedup.tryAdmit(t.getUrl())) admitted.add(t);
+            else duplicates.incrementAndGet();
+        }
+        if (admitted.isEmpty()) return 0;
+        List<UrlTask> placed = new ArrayList<>(admitted.size());
+        lock.lock();
+        try {
+            for (UrlTask t : admitted) {
+                t.score = scorer.score(t);
+                t.seq = nextSeq++;
+                if (place(t)) placed.add(t);
+                else dedup.forget(t.getUrl());
+            }
+            if (journal != null && !placed.isEmpty()) journal.enqueued(placed);
+        } finally {
+            lock.unlock();
         }
+        return placed.size();
     }
 
+    /** Starts a crawl cycle: URLs seen in earlier cycles may be enqueued again. */
+    public void newCycle() {
+        log.info("Frontier cycle: inMemory={}, spilled={} ({} runs), seen={}, duplicatesSkipped={}, "
+                        + "spilledTotal={}, dropped={}",
+                size(), spilledSize(), spillRuns(), dedup.size(), duplicates.get(), spilled.get(), dropped.get());
+        dedup.newCycle();
+    }
+
+    /**
+     * Blocks until some host is allowed to be fetched; null if interrupted or
+     * after {@link #stopTaking()}.
+     * Every returned task must be released with {@link #taskDone(UrlTask)}.
+     */
     public UrlTask takeTask() {
-        try { return queue.take(); }
-        catch (InterruptedException e) { Thread.currentThread().interrupt(); return null; }
+        lock.lock();
+        try {
+            while (true) {
+                if (stopped) return null;
+                long now = System.currentTimeMillis();
+                while (!waiting.isEmpty() && waiting.peek().nextFetchAt <= now) {
+                    HostQueue h = waiting.poll();
+                    h.inReady = true;
+                    ready.add(h);
+                }
+                HostQueue hq = ready.poll();
+                if (hq == null) {
+                    HostQueue next = waiting.peek();
+                    if (next == null) changed.await();
+                    else changed.await(next.nextFetchAt - now, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                hq.scheduled = false;
+                UrlTask t = hq.tasks.pollFirst();
+                inMemory.remove(t);
+                hq.inFlight++;
+                hq.nextFetchAt = now + politeness.delayFor(hq.host);
+                schedule(hq);
+                refillIfLow();
+                // Cho worker khác xem host kế tiếp
+                if (!ready.isEmpty()) changed.signal();
+                return t;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Wakes every worker blocked in {@link #takeTask()}; no task is handed out after this. */
+    public void stopTaking() {
+        lock.lock();
+        try {
+            stopped = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Frees the in-flight slot taken by {@link #takeTask()}. */
+    public void taskDone(UrlTask t) {
+        lock.lock();
+        try {
+            HostQueue hq = hosts.get(t.getHost());
+            if (hq == null) return;
+            hq.inFlight--;
+            schedule(hq);
+        } finally {
+            lock.unlock();
+        }
+        if (journal != null) journal.done(t.seq);
+    }
+
+    /** Checkpoints the journal; pending tasks are replayed by the next start. */
+    public void close() throws IOException {
+        if (journal != null) journal.close();
+        lock.lock();
+        try {
+            spill.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock. False only if the task had to be spilled and the spill failed.
+    private boolean place(UrlTask t) {
+        if (inMemory.size() < capacity) {
+            add(t);
+            return true;
+        }
+        // RAM đầy: task có điểm thấp hơn (mới hoặc tệ nhất hiện tại) xuống đĩa
+        UrlTask worst = inMemory.last();
+        if (SpillStore.BEST_FIRST.compare(t, worst) < 0) {
+            remove(worst);
+            add(t);
+            return spill(worst);
+        }
+        return spill(t);
+    }
+
+    // Caller holds lock
+    private void add(UrlTask t) {
+        HostQueue hq = hosts.computeIfAbsent(t.getHost(), HostQueue::new);
+        UrlTask oldBest = hq.tasks.isEmpty() ? null : hq.tasks.first();
+        hq.tasks.add(t);
+        inMemory.add(t);
+        if (hq.scheduled && hq.inReady && oldBest != hq.tasks.first()) {
+            // Task tốt nhất của host đổi: sắp xếp lại trong heap
+            ready.remove(hq);
+            ready.add(hq);
+        }
+        schedule(hq);
+    }
+
+    // Caller holds lock
+    private void remove(UrlTask t) {
+        HostQueue hq = hosts.get(t.getHost());
+        inMemory.remove(t);
+        hq.tasks.remove(t);
+        if (hq.tasks.isEmpty() && hq.scheduled) {
+            (hq.inReady ? ready : waiting).remove(hq);
+            hq.scheduled = false;
+        }
+    }
+
+    // Caller holds lock
+    private void schedule(HostQueue hq) {
+        if (!hq.scheduled && !hq.tasks.isEmpty() && hq.inFlight < maxPerHost) {
+            hq.scheduled = true;
+            hq.inReady = hq.nextFetchAt <= System.currentTimeMillis();
+            (hq.inReady ? ready : waiting).add(hq);
+            changed.signal();
+        }
+    }
+
+    // Caller holds lock
+    private boolean spill(UrlTask t) {
+        try {
+            spill.add(t);
+            spilled.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+            log.error("Frontier spill failed, dropping {}", t.getUrl(), e);
+            return false;
+        }
+    }
+
+    // Caller holds lock
+    private void refillIfLow() {
+        if (inMemory.size() >= refillBelow || spill.size() == 0) return;
+        try {
+            List<UrlTask> back = spill.pollBest(capacity - inMemory.size());
+            for (UrlTask t : back) add(t);
+            if (log.isDebugEnabled()) log.debug("Refilled {} tasks from spill, {} left", back.size(), spill.size());
+        } catch (IOException e) {
+            log.error("Frontier refill from spill failed", e);
+        }
+    }
+
+    /** Tasks held in memory. */
+    public int size() {
+        lock.lock();
+        try {
+            return inMemory.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Tasks currently spilled to disk. */
+    public long spilledSize() {
+        lock.lock();
+        try {
+            return spill.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int spillRuns() {
+        lock.lock();
+        try {
+            return spill.runCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Tasks lost because spilling them to disk failed. */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** Pushes skipped because the URL was already admitted this cycle. */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    private static final class HostQueue {
+        final String host;
+        final TreeSet<UrlTask> tasks = new TreeSet<>(SpillStore.BEST_FIRST);
+        long nextFetchAt;
+        int inFlight;
+        boolean scheduled;
+        boolean inReady;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
     }
 }
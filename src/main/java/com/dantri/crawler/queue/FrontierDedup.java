@@ -0,0 +1,41 @@
+package com.dantri.crawler.queue;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Seen / enqueued" set for the frontier: a URL is admitted at most once per
+ * crawl cycle. Each entry remembers the cycle that admitted it, so starting a
+ * new cycle only needs a bump of the counter plus a sweep of stale entries.
+ */
+public class FrontierDedup {
+    private final ConcurrentHashMap<String, Integer> seen = new ConcurrentHashMap<>();
+    private volatile int cycle;
+
+    /** True if the URL was not yet admitted in the current cycle (and is now). */
+    public boolean tryAdmit(String url) {
+        int c = cycle;
+        boolean[] admitted = {false};
+        seen.compute(url, (k, v) -> {
+            if (v == null || v < c) {
+                admitted[0] = true;
+                return c;
+            }
+            return v;
+        });
+        return admitted[0];
+    }
+
+    /** Undo an admission, e.g. when the queue rejected the task. */
+    public void forget(String url) {
+        seen.remove(url);
+    }
+
+    public void newCycle() {
+        int c = ++cycle;
+        seen.values().removeIf(v -> v < c);
+    }
+
+    public int size() {
+        return seen.size();
+    }
+}
@@ -0,0 +1,399 @@
+package com.dantri.crawler.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the frontier in memory-mapped, append-only segments.
+ * <p>
+ * Every enqueued task is logged as an ENQ record (seq, level, discovery time,
+ * article probability, url) and every finished task as a DONE record (seq).
+ * Replaying the live segments in order yields exactly the tasks that were
+ * queued, spilled or in flight when the process stopped.
+ * <p>
+ * Records are {@code [len][crc][payload]}; the CRC is seeded with the segment
+ * id, so leftovers from a recycled file never validate and replay stops at the
+ * first torn or stale record. A checkpoint file (oldest live segment, active
+ * segment, write offset, next seq) is rewritten atomically every
+ * checkpointIntervalMs after forcing the active mapping.
+ * <p>
+ * Segments are retired oldest first: once the oldest one holds no pending
+ * task it is recycled as a future segment. If a few long-pending tasks pin it
+ * while the log grows past maxSegments, those tasks are re-logged into the
+ * active segment first. Pending seqs are tracked in a sliding bit set. A
+ * retired-to-be segment no longer changes, so it is scanned once, outside the
+ * journal lock; later checks only look at the seqs that were still pending.
+ */
+class FrontierJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(FrontierJournal.class);
+    private static final byte ENQ = 1;
+    private static final byte DONE = 2;
+    private static final int HEADER = 8;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final long checkpointIntervalMs;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final ArrayDeque<Path> free = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "frontier-journal");
+        t.setDaemon(true);
+        return t;
+    });
+    // bit (seq - pendingBase) bật = task chưa xong
+    private BitSet pending = new BitSet();
+    private long pendingBase;
+    private long nextSeq;
+    private long activeId;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private OldestScan oldestScan; // chỉ thread maintenance dùng
+
+    /** ENQ seqs of the oldest segment not yet known to be done. */
+    private record OldestScan(long id, long[] pendingSeqs, long enqueues) {}
+
+    FrontierJournal(Path dir, int segmentBytes, int maxSegments, long checkpointIntervalMs) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.checkpointIntervalMs = checkpointIntervalMs;
+        Files.createDirectories(dir);
+    }
+
+    /**
+     * Replays the log and opens it for appending; returns the pending tasks
+     * with their original seq and discovery time. Call once, before any append.
+     */
+    synchronized List<UrlTask> recover() throws IOException {
+        long started = System.currentTimeMillis();
+        long oldest = readCheckpoint();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (!name.startsWith("seg-") || !name.endsWith(".log")) continue;
+                long id = Long.parseLong(name.substring(4, name.length() - 4));
+                if (id >= oldest) segments.put(id, p);
+                else free.add(p); // đã retire trước khi crash
+            }
+        }
+        Map<Long, UrlTask> live = new LinkedHashMap<>();
+        long records = 0;
+        int lastEnd = 0;
+        for (Map.Entry<Long, Path> e : segments.entrySet()) {
+            int[] end = {0};
+            records += scan(e.getKey(), e.getValue(), (type, seq, task) -> {
+                if (type == ENQ) live.put(seq, task);
+                else live.remove(seq);
+                nextSeq = Math.max(nextSeq, seq + 1);
+            }, end);
+            lastEnd = end[0];
+        }
+        pendingBase = live.isEmpty() ? nextSeq : live.keySet().stream().mapToLong(Long::longValue).min().getAsLong();
+        for (long seq : live.keySet()) pending.set((int) (seq - pendingBase));
+
+        if (segments.isEmpty()) {
+            openActive(1, 0);
+        } else {
+            openActive(segments.lastKey(), lastEnd);
+        }
+        checkpoint();
+        maintenance.scheduleWithFixedDelay(this::checkpointQuietly, checkpointIntervalMs, checkpointIntervalMs,
+                TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::retireQuietly, 5, 5, TimeUnit.SECONDS);
+        log.info("Frontier journal: replayed {} records from {} segments in {} ms, {} pending tasks",
+                records, segments.size(), System.currentTimeMillis() - started, live.size());
+        return new ArrayList<>(live.values());
+    }
+
+    long nextSeq() {
+        return nextSeq;
+    }
+
+    /** Logs a batch of enqueued tasks (seq already assigned) in one go. */
+    synchronized void enqueued(Collection<UrlTask> tasks) {
+        for (UrlTask t : tasks) {
+            appendEnq(t);
+            markPending(t.seq, true);
+            nextSeq = Math.max(nextSeq, t.seq + 1);
+        }
+    }
+
+    synchronized void done(long seq) {
+        ByteBuffer b = ByteBuffer.allocate(9);
+        b.put(DONE).putLong(seq);
+        append(b.array());
+        markPending(seq, false);
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    synchronized long pendingCount() {
+        return pending.cardinality();
+    }
+
+    private void appendEnq(UrlTask t) {
+        byte[] url = t.getUrl().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = ByteBuffer.allocate(1 + 8 + 4 + 8 + 8 + 4 + url.length);
+        b.put(ENQ).putLong(t.seq).putInt(t.getLevel()).putLong(t.getDiscoveredAt())
+                .putDouble(t.getArticleProbability()).putInt(url.length).put(url);
+        append(b.array());
+    }
+
+    private void append(byte[] payload) {
+        if (active.remaining() < HEADER + payload.length + HEADER) {
+            try {
+                roll();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot roll frontier journal segment", e);
+            }
+        }
+        active.putInt(payload.length);
+        active.putInt(checksum(crc, activeId, payload));
+        active.put(payload);
+        // đánh dấu cuối log để replay dừng đúng chỗ
+        active.putInt(active.position(), 0);
+    }
+
+    private void markPending(long seq, boolean on) {
+        long idx = seq - pendingBase;
+        if (idx < 0) return; // task đã được đánh dấu xong từ trước
+        if (idx >= Integer.MAX_VALUE) {
+            rebase();
+            idx = seq - pendingBase;
+        }
+        if (on) pending.set((int) idx);
+        else pending.clear((int) idx);
+    }
+
+    /** Slides the window so bit 0 is the oldest pending seq. */
+    private void rebase() {
+        int first = pending.nextSetBit(0);
+        if (first < 0) {
+            pendingBase = nextSeq;
+            pending = new BitSet();
+        } else if (first > 0) {
+            pending = pending.get(first, pending.length());
+            pendingBase += first;
+        }
+    }
+
+    private boolean isPending(long seq) {
+        long idx = seq - pendingBase;
+        return idx >= 0 && idx < Integer.MAX_VALUE && pending.get((int) idx);
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        activeChannel.close();
+        openActive(activeId + 1, 0);
+    }
+
+    private void openActive(long id, int position) throws IOException {
+        Path file = segments.get(id);
+        if (file == null) {
+            file = dir.resolve(String.format("seg-%012d.log", id));
+            Path recycled = free.poll();
+            if (recycled != null) Files.move(recycled, file, StandardCopyOption.ATOMIC_MOVE);
+            segments.put(id, file);
+        }
+        activeChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        active.position(position);
+        active.putInt(position, 0);
+        activeId = id;
+    }
+
+    private void checkpointQuietly() {
+        try {
+            synchronized (this) {
+                checkpoint();
+            }
+        } catch (Exception e) {
+            log.error("Frontier checkpoint failed", e);
+        }
+    }
+
+    private void checkpoint() throws IOException {
+        rebase();
+        active.force();
+        String cp = segments.firstKey() + " " + activeId + " " + active.position() + " " + nextSeq + "\n";
+        Path tmp = dir.resolve("checkpoint.tmp");
+        Files.writeString(tmp, cp, StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve("checkpoint"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path cp = dir.resolve("checkpoint");
+        if (!Files.exists(cp)) return 0;
+        String[] f = Files.readString(cp, StandardCharsets.UTF_8).trim().split(" ");
+        nextSeq = Long.parseLong(f[3]);
+        return Long.parseLong(f[0]);
+    }
+
+    private void retireQuietly() {
+        try {
+            retireOldest();
+        } catch (Exception e) {
+            log.error("Frontier segment recycling failed", e);
+        }
+    }
+
+    /** Recycles dead segments from the oldest end; relocates stragglers when the log is too long. */
+    private void retireOldest() throws IOException {
+        while (true) {
+            Map.Entry<Long, Path> oldest;
+            synchronized (this) {
+                if (segments.size() <= 1) return;
+                oldest = segments.firstEntry();
+            }
+            OldestScan s = oldestScan;
+            if (s == null || s.id() != oldest.getKey()) {
+                // Đọc ngoài lock: segment không còn active thì không bị ghi thêm, enqueued/done không phải chờ
+                long[] seqs = scanEnqueues(oldest.getKey(), oldest.getValue());
+                s = new OldestScan(oldest.getKey(), seqs, seqs.length);
+            }
+            synchronized (this) {
+                if (!retire(oldest, s)) return;
+            }
+        }
+    }
+
+    // Caller holds the monitor. False while pending tasks still pin the segment.
+    private boolean retire(Map.Entry<Long, Path> oldest, OldestScan s) throws IOException {
+        long[] still = Arrays.stream(s.pendingSeqs()).filter(this::isPending).toArray();
+        oldestScan = new OldestScan(s.id(), still, s.enqueues());
+        if (still.length > 0) {
+            if (segments.size() <= maxSegments) return false;
+            List<UrlTask> stragglers = new ArrayList<>();
+            scan(oldest.getKey(), oldest.getValue(), (type, seq, task) -> {
+                if (type == ENQ && isPending(seq)) stragglers.add(task);
+            }, new int[1]);
+            // Bản sao relocate trước đó có thể trùng seq
+            for (UrlTask t : dedupBySeq(stragglers)) appendEnq(t);
+            log.info("Relocated {} long-pending tasks out of frontier segment {}", stragglers.size(), oldest.getKey());
+        }
+        segments.remove(oldest.getKey());
+        checkpoint();
+        if (free.size() < 2) free.add(oldest.getValue());
+        else Files.deleteIfExists(oldest.getValue());
+        oldestScan = null;
+        log.debug("Retired frontier segment {} ({} enqueues)", oldest.getKey(), s.enqueues());
+        return true;
+    }
+
+    /** Seqs of every ENQ record in a segment that is no longer active. */
+    private long[] scanEnqueues(long id, Path file) throws IOException {
+        long[][] seqs = {new long[1024]};
+        int[] n = {0};
+        scan(id, file, (type, seq, task) -> {
+            if (type != ENQ) return;
+            if (n[0] == seqs[0].length) seqs[0] = Arrays.copyOf(seqs[0], n[0] * 2);
+            seqs[0][n[0]++] = seq;
+        }, new int[1]);
+        return Arrays.copyOf(seqs[0], n[0]);
+    }
+
+    private static Collection<UrlTask> dedupBySeq(List<UrlTask> tasks) {
+        Map<Long, UrlTask> bySeq = new LinkedHashMap<>();
+        for (UrlTask t : tasks) bySeq.put(t.seq, t);
+        return bySeq.values();
+    }
+
+    private interface RecordVisitor {
+        void visit(byte type, long seq, UrlTask task);
+    }
+
+    /** Reads valid records of one segment; end[0] receives the offset after the last one. */
+    private long scan(long id, Path file, RecordVisitor visitor, int[] end) throws IOException {
+        long n = 0;
+        ByteBuffer b;
+        if (id == activeId && active != null) {
+            b = active.duplicate();
+            b.position(0);
+        } else {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+        }
+        CRC32 c = new CRC32();
+        while (b.remaining() >= HEADER) {
+            int start = b.position();
+            int len = b.getInt();
+            int sum = b.getInt();
+            if (len <= 0 || len > b.remaining()) break;
+            byte[] payload = new byte[len];
+            b.get(payload);
+            if (checksum(c, id, payload) != sum) break;
+            ByteBuffer p = ByteBuffer.wrap(payload);
+            byte type = p.get();
+            long seq = p.getLong();
+            UrlTask task = null;
+            if (type == ENQ) {
+                int level = p.getInt();
+                long discoveredAt = p.getLong();
+                double prob = p.getDouble();
+                byte[] url = new byte[p.getInt()];
+                p.get(url);
+                task = new UrlTask(new String(url, StandardCharsets.UTF_8), level, prob, discoveredAt);
+                task.seq = seq;
+            }
+            visitor.visit(type, seq, task);
+            n++;
+            end[0] = b.position();
+            if (start == b.position()) break;
+        }
+        return n;
+    }
+
+    private static int checksum(CRC32 c, long segmentId, byte[] payload) {
+        c.reset();
+        for (int i = 0; i < 8; i++) c.update((int) (segmentId >>> (i * 8)) & 0xff);
+        c.update(payload, 0, payload.length);
+        return (int) c.getValue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdown();
+        try {
+            // retireOldest có thể đang đọc segment ngoài lock
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            checkpoint();
+            activeChannel.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.dantri.crawler.queue;
+
+import com.dantri.crawler.config.ConfigLoader;
+
+/**
+ * Priority of a task in the frontier; higher is fetched first. Computed once
+ * when the task is pushed. Host readiness is not part of the score: the
+ * frontier only ever picks among hosts whose politeness delay has passed.
+ */
+@FunctionalInterface
+public interface FrontierScorer {
+
+    double score(UrlTask task);
+
+    /**
+     * Linear default: shallower levels, likely articles and recent discoveries
+     * win. frontier.freshnessWeightPerHour turns discovery time into score, so a
+     * link found an hour later outranks an otherwise equal older one by that weight.
+     */
+    static FrontierScorer fromConfig() {
+        double levelWeight = ConfigLoader.getFrontierLevelWeight();
+        double articleWeight = ConfigLoader.getFrontierArticleWeight();
+        double freshnessPerMs = ConfigLoader.getFrontierFreshnessWeightPerHour() / 3_600_000.0;
+        return t -> {
+            double p = t.getArticleProbability() < 0 ? 0.5 : t.getArticleProbability();
+            return -levelWeight * t.getLevel() + articleWeight * p + freshnessPerMs * t.getDiscoveredAt();
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.dantri.crawler.queue;
+
+import com.dantri.crawler.config.ConfigLoader;
+
+import java.util.Map;
+
+/**
+ * Minimum delay between two fetches to the same host.
+ * Uses settings.requestDelayMs, overridable per domain via settings.domainDelayMs;
+ * an override for "example.com" also covers "www.example.com".
+ */
+public class PolitenessPolicy {
+    private final long defaultDelayMs;
+    private final Map<String, Long> overrides;
+
+    public PolitenessPolicy(long defaultDelayMs, Map<String, Long> overrides) {
+        this.defaultDelayMs = defaultDelayMs;
+        this.overrides = overrides;
+    }
+
+    public static PolitenessPolicy fromConfig() {
+        return new PolitenessPolicy(ConfigLoader.getRequestDelayMs(), ConfigLoader.getDomainDelayMs());
+    }
+
+    public long delayFor(String host) {
+        String h = host;
+        while (h != null && !h.isEmpty()) {
+            Long d = overrides.get(h);
+            if (d != null) return d;
+            int dot = h.indexOf('.');
+            h = dot < 0 ? null : h.substring(dot + 1);
+        }
+        return defaultDelayMs;
+    }
+}
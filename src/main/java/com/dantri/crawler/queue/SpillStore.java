@@ -0,0 +1,187 @@
+package com.dantri.crawler.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Overflow of the in-memory frontier, kept as sorted runs on disk.
+ * <p>
+ * Spilled tasks collect in a small buffer; a full buffer is sorted by score
+ * and written out as one run file. {@link #pollBest(int)} k-way merges the
+ * runs and the buffer, so refills always return the best spilled tasks first.
+ * Exhausted runs are deleted; when too many runs pile up they are merged into
+ * one. Not thread-safe: the frontier calls it under its own lock.
+ */
+class SpillStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SpillStore.class);
+    private static final int MAX_RUNS = 64;
+    static final Comparator<UrlTask> BEST_FIRST = Comparator
+            .comparingDouble((UrlTask t) -> -t.score)
+            .thenComparingLong(t -> t.seq);
+
+    private final Path dir;
+    private final int runSize;
+    private final List<UrlTask> buffer = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    private long size;
+    private int nextRunId;
+
+    SpillStore(Path dir, int runSize) throws IOException {
+        this.dir = dir;
+        this.runSize = runSize;
+        Files.createDirectories(dir);
+        // Run cũ của lần chạy trước không còn khớp với frontier hiện tại
+        try (Stream<Path> old = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) old::iterator) Files.deleteIfExists(p);
+        }
+    }
+
+    void add(UrlTask t) throws IOException {
+        buffer.add(t);
+        size++;
+        if (buffer.size() >= runSize) flushBuffer();
+    }
+
+    /** Removes and returns up to n tasks, best score first. */
+    List<UrlTask> pollBest(int n) throws IOException {
+        List<UrlTask> out = new ArrayList<>(Math.min(n, (int) Math.min(size, Integer.MAX_VALUE)));
+        if (size == 0 || n <= 0) return out;
+        buffer.sort(BEST_FIRST);
+        int bufIdx = 0;
+        PriorityQueue<Run> heads = new PriorityQueue<>(Comparator.comparing((Run r) -> r.head, BEST_FIRST));
+        for (Run r : runs) {
+            if (r.head != null) heads.add(r);
+        }
+        while (out.size() < n) {
+            Run r = heads.peek();
+            UrlTask fromBuffer = bufIdx < buffer.size() ? buffer.get(bufIdx) : null;
+            if (r == null && fromBuffer == null) break;
+            if (r == null || (fromBuffer != null && BEST_FIRST.compare(fromBuffer, r.head) <= 0)) {
+                out.add(fromBuffer);
+                bufIdx++;
+            } else {
+                heads.poll();
+                out.add(r.head);
+                r.advance();
+                if (r.head != null) heads.add(r);
+            }
+        }
+        buffer.subList(0, bufIdx).clear();
+        runs.removeIf(r -> {
+            if (r.head != null) return false;
+            r.delete();
+            return true;
+        });
+        size -= out.size();
+        return out;
+    }
+
+    long size() {
+        return size;
+    }
+
+    int runCount() {
+        return runs.size();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffer.isEmpty()) return;
+        buffer.sort(BEST_FIRST);
+        runs.add(Run.write(dir.resolve("run-" + (nextRunId++) + ".tsv"), buffer));
+        buffer.clear();
+        if (runs.size() > MAX_RUNS) mergeRuns();
+    }
+
+    /** Streams every run into a single one to bound open files. */
+    private void mergeRuns() throws IOException {
+        Path file = dir.resolve("run-" + (nextRunId++) + ".tsv");
+        PriorityQueue<Run> heads = new PriorityQueue<>(Comparator.comparing((Run r) -> r.head, BEST_FIRST));
+        for (Run r : runs) {
+            if (r.head != null) heads.add(r);
+        }
+        long n = 0;
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            while (!heads.isEmpty()) {
+                Run r = heads.poll();
+                Run.writeLine(w, r.head);
+                n++;
+                r.advance();
+                if (r.head != null) heads.add(r);
+            }
+        }
+        for (Run r : runs) r.delete();
+        runs.clear();
+        runs.add(new Run(file));
+        log.info("Merged frontier spill runs into one run of {} tasks", n);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Run r : runs) r.close();
+    }
+
+    /** One sorted run file read sequentially; head is the next unread task. */
+    private static final class Run {
+        final Path file;
+        final BufferedReader in;
+        UrlTask head;
+
+        private Run(Path file) throws IOException {
+            this.file = file;
+            this.in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            advance();
+        }
+
+        static Run write(Path file, List<UrlTask> sorted) throws IOException {
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (UrlTask t : sorted) writeLine(w, t);
+            }
+            return new Run(file);
+        }
+
+        static void writeLine(BufferedWriter w, UrlTask t) throws IOException {
+            w.write(t.score + "\t" + t.seq + "\t" + t.getLevel() + "\t" + t.getDiscoveredAt()
+                    + "\t" + t.getArticleProbability() + "\t" + t.getUrl());
+            w.newLine();
+        }
+
+        void advance() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                head = null;
+                return;
+            }
+            String[] f = line.split("\t", 6);
+            UrlTask t = new UrlTask(f[5], Integer.parseInt(f[2]), Double.parseDouble(f[4]), Long.parseLong(f[3]));
+            t.score = Double.parseDouble(f[0]);
+            t.seq = Long.parseLong(f[1]);
+            head = t;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        void delete() {
+            try {
+                in.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete spill run {}", file, e);
+            }
+        }
+    }
+}
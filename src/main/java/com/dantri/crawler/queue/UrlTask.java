@@ -1,9 +1,38 @@
 package com.dantri.crawler.queue;
 
+import java.net.URI;
+
 public class UrlTask {
+    /** articleProbability when the URL classifier has no opinion. */
+    public static final double UNKNOWN_PROBABILITY = -1;
+
     private final String url;
     private final int level;
-    public UrlTask(String u, int l) { url = u; level = l; }
+    private final String host;
+    private final double articleProbability;
+    private final long discoveredAt;
+    // Gán bởi CrawlQueueManager khi push
+    double score;
+    long seq;
+
+    public UrlTask(String u, int l) { this(u, l, UNKNOWN_PROBABILITY); }
+    public UrlTask(String u, int l, double p) { this(u, l, p, System.currentTimeMillis()); }
+    UrlTask(String u, int l, double p, long discovered) {
+        url = u; level = l; host = hostOf(u); articleProbability = p; discoveredAt = discovered;
+    }
     public String getUrl() { return url; }
     public int getLevel() { return level; }
+    public String getHost() { return host; }
+    public double getArticleProbability() { return articleProbability; }
+    public long getDiscoveredAt() { return discoveredAt; }
+    public double getScore() { return score; }
+
+    static String hostOf(String url) {
+        try {
+            String h = new URI(url).getHost();
+            return h == null ? "" : h.toLowerCase();
+        } catch (Exception e) {
+            return "";
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package com.dantri.crawler.replay;
+
+import com.dantri.crawler.MainCrawler;
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.metrics.Counter;
+import com.dantri.crawler.metrics.Histogram;
+import com.dantri.crawler.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Headless end-to-end run against the {@link ReplayServer}: starts the server,
+ * runs {@link MainCrawler} for a fixed duration, stops it and prints pages/s,
+ * articles/s, fetches per stored article and fetch latency percentiles.
+ * <pre>
+ *   java -Dcrawler.config=replay.json -cp ... com.dantri.crawler.replay.ReplayDriver \
+ *        [--duration 120] [--generate 8 200] [--allow-existing-state]
+ * </pre>
+ * crawler.config defaults to the bundled replay.json, which remaps every host
+ * to the replay server; everything else (politeness, workers) is the normal
+ * config unless the overlay changes it. {@code --generate hubs articles}
+ * writes a {@link SyntheticCorpus} first when the corpus directory is empty.
+ * All crawler state lives under ./data, so the driver refuses to run where
+ * that already holds a real crawl's state.
+ */
+public final class ReplayDriver {
+    private static final Logger log = LoggerFactory.getLogger(ReplayDriver.class);
+    private static final long REPORT_INTERVAL_MS = 10_000;
+
+    private ReplayDriver() {}
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty(ConfigLoader.CONFIG_PROPERTY) == null) {
+            System.setProperty(ConfigLoader.CONFIG_PROPERTY, "replay.json");
+        }
+        MainCrawler.configureDnsCache();
+        long durationSec = 60;
+        int hubs = 0, articles = 0;
+        boolean allowState = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--duration" -> durationSec = Long.parseLong(args[++i]);
+                case "--generate" -> {
+                    hubs = Integer.parseInt(args[++i]);
+                    articles = Integer.parseInt(args[++i]);
+                }
+                case "--allow-existing-state" -> allowState = true;
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        if (!allowState && !isEmpty(Path.of("data"))) {
+            System.err.println("./data is not empty; run in a scratch directory or pass --allow-existing-state");
+            System.exit(2);
+        }
+
+        ReplayServer server = ReplayServer.fromConfig();
+        if (hubs > 0 && isEmpty(server.corpus())) {
+            int pages = SyntheticCorpus.generate(server.corpus(), ConfigLoader.getStartUrls(), hubs, articles,
+                    System.nanoTime());
+            log.info("Generated {} synthetic pages in {}", pages, server.corpus());
+        }
+        server.start();
+
+        long started = System.nanoTime();
+        MainCrawler crawler = MainCrawler.start();
+        long end = started + durationSec * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(REPORT_INTERVAL_MS, Math.max(1, (end - System.nanoTime()) / 1_000_000)));
+            System.out.println(report(started));
+        }
+        crawler.stop();
+        server.stop();
+
+        String result = report(started) + "\nreplay server: " + server;
+        System.out.println("=== Replay result ===\n" + result);
+        log.info("Replay result: {}", result.replace('\n', ' '));
+        System.exit(0);
+    }
+
+    private static String report(long startedNanos) {
+        double secs = (System.nanoTime() - startedNanos) / 1e9;
+        long fetches = total(Metrics.findCounter("crawler_fetch_requests_total"));
+        long saved = total(Metrics.findCounter("crawler_articles_saved_total"));
+        Histogram latency = Metrics.findHistogram("crawler_fetch_seconds");
+        Histogram.Child all = latency != null ? latency.merged() : null;
+        return String.format("%.0fs: %d fetches (%.1f pages/s), %d articles (%.2f articles/s), %s fetches/article, "
+                        + "fetch latency p50=%.1fms p99=%.1fms",
+                secs, fetches, fetches / secs, saved, saved / secs,
+                saved > 0 ? String.format("%.2f", (double) fetches / saved) : "-",
+                all != null ? all.quantile(0.5) / 1e6 : 0, all != null ? all.quantile(0.99) / 1e6 : 0);
+    }
+
+    private static long total(Counter c) {
+        return c != null ? c.total() : 0;
+    }
+
+    private static boolean isEmpty(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return true;
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.findAny().isEmpty();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.dantri.crawler.replay;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the news sites: serves a captured corpus with injected
+ * latency, errors and per-host rate limits, so the crawler can be load-tested
+ * without touching the real hosts (point it here with fetcher.hostRemap).
+ * <p>
+ * Corpus layout: {@code <corpusDir>/<host>/<path>}; a path ending in '/' maps
+ * to index.html in that directory and a query string, when present, is tried
+ * as part of the file name first ({@code page?x=1}). The host comes from
+ * X-Forwarded-Host, else from Host. Files are served with Last-Modified set to
+ * their mtime and If-Modified-Since is honoured, so hub recrawls can get 304s.
+ * <p>
+ * Latency is log-normal from medianMs and p99Ms; errorRate of the requests get
+ * a 503 and requests over maxRps for a host get a 429. Each handler runs on its
+ * own virtual thread, so sleeping out the latency costs no platform thread.
+ */
+public class ReplayServer {
+    private static final Logger log = LoggerFactory.getLogger(ReplayServer.class);
+    private static final double Z_99 = 2.3263;
+
+    /** Behaviour of one host; maxRps 0 means no limit. */
+    public record Profile(long medianMs, long p99Ms, double errorRate, double maxRps) {
+        Profile with(JsonNode n) {
+            return new Profile(n.path("medianMs").asLong(medianMs), n.path("p99Ms").asLong(p99Ms),
+                    n.path("errorRate").asDouble(errorRate), n.path("maxRps").asDouble(maxRps));
+        }
+
+        long sampleLatencyMs() {
+            if (medianMs <= 0) return 0;
+            if (p99Ms <= medianMs) return medianMs;
+            double sigma = Math.log((double) p99Ms / medianMs) / Z_99;
+            return Math.round(medianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    private final Path corpus;
+    private final int port;
+    private final Profile defaults;
+    private final Map<String, Profile> hosts;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ReplayServer(Path corpus, int port, Profile defaults, Map<String, Profile> hosts) {
+        this.corpus = corpus.toAbsolutePath().normalize();
+        this.port = port;
+        this.defaults = defaults;
+        this.hosts = hosts;
+    }
+
+    public static ReplayServer fromConfig() {
+        JsonNode cfg = ConfigLoader.getReplay();
+        Profile defaults = new Profile(0, 0, 0, 0).with(cfg);
+        Map<String, Profile> hosts = new HashMap<>();
+        cfg.path("hosts").fields().forEachRemaining(e ->
+                hosts.put(e.getKey().toLowerCase(Locale.ROOT), defaults.with(e.getValue())));
+        return new ReplayServer(Path.of(cfg.path("corpusDir").asText("replay-corpus")),
+                cfg.path("port").asInt(8780), defaults, hosts);
+    }
+
+    public Path corpus() {
+        return corpus;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.createContext("/", this::handle);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+        log.info("Replay server on http://127.0.0.1:{}/ serving {} ({}, {} host overrides)",
+                port, corpus, defaults, hosts.size());
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String host = hostOf(ex);
+            Profile p = hosts.getOrDefault(host, defaults);
+            if (p.maxRps() > 0 && !buckets.computeIfAbsent(host, h -> new TokenBucket(p.maxRps())).tryTake()) {
+                throttled.incrementAndGet();
+                ex.getResponseHeaders().set("Retry-After", "1");
+                ex.sendResponseHeaders(429, -1);
+                return;
+            }
+            long delay = p.sampleLatencyMs();
+            if (delay > 0) Thread.sleep(delay);
+            if (p.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < p.errorRate()) {
+                errors.incrementAndGet();
+                ex.sendResponseHeaders(503, -1);
+                return;
+            }
+            Path file = resolve(host, ex.getRequestURI().getRawPath(), ex.getRequestURI().getRawQuery());
+            if (file == null) {
+                notFound.incrementAndGet();
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+            ZonedDateTime mtime = Files.getLastModifiedTime(file).toInstant().atZone(ZoneOffset.UTC).withNano(0);
+            ex.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(mtime));
+            if (notModifiedSince(ex.getRequestHeaders().getFirst("If-Modified-Since"), mtime)) {
+                notModified.incrementAndGet();
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = Files.readAllBytes(file);
+            ex.getResponseHeaders().set("Content-Type", contentType(file));
+            served.incrementAndGet();
+            if ("HEAD".equals(ex.getRequestMethod())) {
+                ex.sendResponseHeaders(200, -1);
+                return;
+            }
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String hostOf(HttpExchange ex) {
+        String h = ex.getRequestHeaders().getFirst("X-Forwarded-Host");
+        if (h == null) h = ex.getRequestHeaders().getFirst("Host");
+        if (h == null) return "";
+        int colon = h.indexOf(':');
+        return (colon >= 0 ? h.substring(0, colon) : h).toLowerCase(Locale.ROOT);
+    }
+
+    /** File for the request inside the host's directory, or null. */
+    private Path resolve(String host, String path, String query) {
+        if (host.isEmpty() || host.contains("/") || host.startsWith(".")) return null;
+        Path root = corpus.resolve(host);
+        String rel = path == null || path.isEmpty() ? "/" : path;
+        if (rel.endsWith("/")) rel += "index.html";
+        Path file = root.resolve(rel.substring(1)).normalize();
+        if (!file.startsWith(root)) return null;
+        if (query != null) {
+            Path withQuery = file.resolveSibling(file.getFileName() + "?" + query);
+            if (Files.isRegularFile(withQuery)) return withQuery;
+        }
+        if (Files.isDirectory(file)) file = file.resolve("index.html");
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    private static boolean notModifiedSince(String header, ZonedDateTime mtime) {
+        if (header == null) return false;
+        try {
+            return !mtime.isAfter(ZonedDateTime.parse(header, DateTimeFormatter.RFC_1123_DATE_TIME));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        int q = name.indexOf('?');
+        if (q >= 0) name = name.substring(0, q);
+        if (name.endsWith(".xml")) return "application/xml; charset=utf-8";
+        if (name.endsWith(".rss")) return "application/rss+xml; charset=utf-8";
+        if (name.endsWith(".txt")) return "text/plain; charset=utf-8";
+        return "text/html; charset=utf-8";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("served=%d, 304=%d, 404=%d, 503=%d, 429=%d",
+                served.get(), notModified.get(), notFound.get(), errors.get(), throttled.get());
+    }
+
+    /** Allows rate requests per second with a burst of one second's worth. */
+    private static final class TokenBucket {
+        private final double rate;
+        private double tokens;
+        private long last = System.nanoTime();
+
+        TokenBucket(double rate) {
+            this.rate = rate;
+            this.tokens = Math.max(1, rate);
+        }
+
+        synchronized boolean tryTake() {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, rate), tokens + (now - last) * rate / 1e9);
+            last = now;
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+    }
+}
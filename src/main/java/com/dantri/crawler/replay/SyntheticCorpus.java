@@ -0,0 +1,163 @@
+package com.dantri.crawler.replay;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a replay corpus with the link structure of a news site when no
+ * captured one is at hand: per host a homepage, category hubs listing their
+ * articles, articles linking back to their hub and to related articles, plus
+ * robots.txt pointing at a news sitemap. Articles rotate through the three
+ * extraction paths (JSON-LD with body, JSON-LD without body, meta only) and
+ * are dated within the last four days so the age cut-off keeps them.
+ */
+public final class SyntheticCorpus {
+    private static final String[] CATEGORIES = {"thoi-su", "the-gioi", "kinh-doanh", "giai-tri", "the-thao",
+            "phap-luat", "giao-duc", "suc-khoe", "doi-song", "du-lich", "so-hoa", "xe"};
+    private static final String[] WORDS = ("thành phố hà nội người dân chính phủ kinh tế giáo dục sức khỏe "
+            + "thể thao bóng đá thị trường doanh nghiệp ngân hàng lãi suất giá vàng xăng dầu giao thông mưa bão "
+            + "miền trung học sinh bệnh viện bác sĩ công an điều tra quốc hội dự án đầu tư nhà ở du lịch văn hóa "
+            + "âm nhạc công nghệ điện thoại xuất khẩu nông sản lúa gạo").split(" ");
+    private static final String[] SLUG_WORDS = ("thanh pho ha noi nguoi dan chinh phu kinh te giao duc suc khoe "
+            + "the thao bong da thi truong doanh nghiep ngan hang lai suat gia vang xang dau giao thong mua bao "
+            + "mien trung hoc sinh benh vien bac si cong an dieu tra quoc hoi du an dau tu").split(" ");
+
+    private SyntheticCorpus() {}
+
+    /** Generates hubsPerHost hubs of articlesPerHub articles for each start URL's host; returns pages written. */
+    public static int generate(Path dir, List<String> startUrls, int hubsPerHost, int articlesPerHub, long seed)
+            throws IOException {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.ofHours(7)).truncatedTo(ChronoUnit.SECONDS);
+        int pages = 0;
+        for (String start : startUrls) {
+            String host = URI.create(start).getHost();
+            String origin = "https://" + host;
+            Random r = new Random(seed ^ host.hashCode());
+            Path root = dir.resolve(host);
+            int hubs = Math.min(hubsPerHost, CATEGORIES.length);
+
+            List<List<String>> articles = new ArrayList<>();
+            for (int h = 0; h < hubs; h++) {
+                List<String> paths = new ArrayList<>();
+                for (int a = 0; a < articlesPerHub; a++) {
+                    paths.add("/" + CATEGORIES[h] + "/" + slug(r) + "-" + (100_000_000L + r.nextInt(900_000_000)) + ".htm");
+                }
+                articles.add(paths);
+            }
+
+            StringBuilder home = new StringBuilder();
+            for (int h = 0; h < hubs; h++) home.append(link("/" + CATEGORIES[h] + ".htm", CATEGORIES[h]));
+            for (int a = 0; a < 5; a++) {
+                for (int h = 0; h < hubs; h++) {
+                    if (a < articles.get(h).size()) home.append(link(articles.get(h).get(a), sentence(r, 8)));
+                }
+            }
+            write(root.resolve("index.html"), page(host, "", host, "", home.toString(), null));
+            pages++;
+
+            StringBuilder sitemap = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+            int id = 0;
+            for (int h = 0; h < hubs; h++) {
+                List<String> paths = articles.get(h);
+                StringBuilder hub = new StringBuilder(link("/", "Trang chủ"));
+                for (String p : paths) hub.append(link(p, sentence(r, 10)));
+                write(root.resolve(CATEGORIES[h] + ".htm"), page(host, "/" + CATEGORIES[h] + ".htm",
+                        CATEGORIES[h] + " | " + host, "", hub.toString(), null));
+                pages++;
+
+                for (int a = 0; a < paths.size(); a++, id++) {
+                    OffsetDateTime published = now.minusMinutes(r.nextInt(4 * 24 * 60));
+                    StringBuilder links = new StringBuilder(link("/" + CATEGORIES[h] + ".htm", CATEGORIES[h]));
+                    for (int k = 1; k <= 8; k++) links.append(link(paths.get((a + k) % paths.size()), sentence(r, 10)));
+                    write(root.resolve(paths.get(a).substring(1)),
+                            article(host, paths.get(a), published, id % 3, r, links.toString()));
+                    pages++;
+                    if (a < 10) {
+                        sitemap.append("  <url><loc>").append(origin).append(paths.get(a)).append("</loc><lastmod>")
+                                .append(published).append("</lastmod></url>\n");
+                    }
+                }
+            }
+            write(root.resolve("sitemap-news.xml"), sitemap.append("</urlset>\n").toString());
+            write(root.resolve("robots.txt"), "User-agent: *\nAllow: /\nSitemap: " + origin + "/sitemap-news.xml\n");
+        }
+        return pages;
+    }
+
+    /** kind 0: JSON-LD with articleBody, 1: JSON-LD without body, 2: meta tags only. */
+    private static String article(String host, String path, OffsetDateTime published, int kind, Random r, String links) {
+        String title = sentence(r, 12);
+        String desc = sentence(r, 28);
+        StringBuilder body = new StringBuilder();
+        StringBuilder plain = new StringBuilder();
+        int paragraphs = 12 + r.nextInt(12);
+        for (int i = 0; i < paragraphs; i++) {
+            String p = sentence(r, 15 + r.nextInt(15)) + " " + sentence(r, 10 + r.nextInt(15));
+            body.append("<p>").append(p).append("</p>\n");
+            plain.append(p).append("\\n");
+        }
+        StringBuilder head = new StringBuilder();
+        head.append("<meta name=\"description\" content=\"").append(desc).append("\">\n");
+        head.append("<meta property=\"og:type\" content=\"article\">\n");
+        if (kind == 2) {
+            head.append("<meta property=\"article:published_time\" content=\"").append(published).append("\">\n");
+        } else {
+            head.append("<script type=\"application/ld+json\">{\"@context\":\"https://schema.org\",\"@type\":\"NewsArticle\",")
+                    .append("\"headline\":\"").append(title).append("\",\"description\":\"").append(desc)
+                    .append("\",\"datePublished\":\"").append(published).append("\",")
+                    .append("\"author\":{\"@type\":\"Person\",\"name\":\"").append(sentence(r, 2)).append("\"}");
+            if (kind == 0) head.append(",\"articleBody\":\"").append(plain).append('"');
+            head.append("}</script>\n");
+        }
+        String main = "<article class=\"article-body\"><h1>" + title + "</h1>\n" + body + "</article>\n"
+                + "<aside class=\"related\"><ul>" + links + "</ul></aside>";
+        return page(host, path, title, head.toString(), null, main);
+    }
+
+    private static String page(String host, String path, String title, String head, String links, String main) {
+        return "<!DOCTYPE html>\n<html lang=\"vi\">\n<head>\n<meta charset=\"utf-8\">\n<title>" + title + "</title>\n"
+                + "<link rel=\"canonical\" href=\"https://" + host + (path.isEmpty() ? "/" : path) + "\">\n" + head
+                + "</head>\n<body>\n<nav class=\"menu\"><ul>" + (links != null ? links : "") + "</ul></nav>\n"
+                + (main != null ? "<main>\n" + main + "\n</main>\n" : "")
+                + "<footer><p>© " + host + "</p></footer>\n</body>\n</html>\n";
+    }
+
+    private static String link(String href, String text) {
+        return "<li><a href=\"" + href + "\">" + text + "</a></li>";
+    }
+
+    private static String sentence(Random r, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[r.nextInt(WORDS.length)]);
+        }
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+
+    private static String slug(Random r) {
+        StringBuilder sb = new StringBuilder();
+        int n = 5 + r.nextInt(5);
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append('-');
+            sb.append(SLUG_WORDS[r.nextInt(SLUG_WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,223 @@
+package com.dantri.crawler.scheduler;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.queue.CrawlQueueManager;
+import com.dantri.crawler.queue.UrlTask;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import com.dantri.crawler.url.UrlFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Per-hub recrawl scheduling for seeds and discovered category pages.
+ * <p>
+ * New articles are modelled as Poisson arrivals on each hub. After every
+ * visit the rate estimate is updated with an EWMA of
+ * {@code newOutlinks / timeSinceLastVisit}, where new outlinks are links not
+ * present on the previous visit (a 304 or unchanged body counts as zero).
+ * The next visit is due after the time expected to bring
+ * hubScheduler.targetNewLinks new links, clamped to [minIntervalMs,
+ * maxIntervalMs]. Hosts that publish feeds (see FeedDiscovery) get
+ * discovery.sweepIntervalMs as their lower bound: their hubs are only a
+ * background sweep.
+ * <p>
+ * Due hubs wait in a {@link DelayQueue}; a daemon thread pushes them into the
+ * frontier. A pushed hub that is not reported back within maxIntervalMs
+ * (fetch failed, task lost) is pushed again.
+ */
+public class HubScheduler {
+    private static final Logger log = LoggerFactory.getLogger(HubScheduler.class);
+
+    private final CrawlQueueManager queue;
+    private final Predicate<String> hostHasFeeds;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final long initialIntervalMs;
+    private final long feedHostMinIntervalMs;
+    private final double targetNewLinks;
+    private final double alpha;
+    private final int maxHubs;
+    private final int maxHubLevel;
+    private final Map<String, Hub> hubs = new ConcurrentHashMap<>();
+    private final DelayQueue<Due> due = new DelayQueue<>();
+    private final LongAdder visits = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder pushes = new LongAdder();
+    private Thread thread;
+
+    public HubScheduler(CrawlQueueManager queue, Predicate<String> hostHasFeeds) {
+        this.queue = queue;
+        this.hostHasFeeds = hostHasFeeds;
+        this.minIntervalMs = ConfigLoader.getHubSchedulerMinIntervalMs();
+        this.maxIntervalMs = Math.max(minIntervalMs, ConfigLoader.getHubSchedulerMaxIntervalMs());
+        this.initialIntervalMs = ConfigLoader.getHubSchedulerInitialIntervalMs();
+        this.feedHostMinIntervalMs = ConfigLoader.isDiscoveryEnabled() ? ConfigLoader.getDiscoverySweepIntervalMs() : 0;
+        this.targetNewLinks = ConfigLoader.getHubSchedulerTargetNewLinks();
+        this.alpha = ConfigLoader.getHubSchedulerAlpha();
+        this.maxHubs = ConfigLoader.getHubSchedulerMaxHubs();
+        this.maxHubLevel = ConfigLoader.getHubSchedulerMaxHubLevel();
+    }
+
+    /** Registers the seeds (due now) and starts pushing due hubs. */
+    public void start(List<String> seeds) {
+        for (String url : seeds) {
+            if (url == null) continue;
+            Hub h = new Hub(url, 0, initialRate());
+            if (hubs.putIfAbsent(url, h) == null) scheduleAt(h, System.currentTimeMillis());
+        }
+        thread = new Thread(this::run, "hub-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Hub scheduler started with {} seeds, interval {}..{} ms", hubs.size(), minIntervalMs, maxIntervalMs);
+    }
+
+    public void shutdown() {
+        if (thread != null) thread.interrupt();
+    }
+
+    public boolean isHub(String url) {
+        return hubs.containsKey(url);
+    }
+
+    /**
+     * Reports a visit of a hub, or of a non-article page whose links were just
+     * extracted (it becomes a hub when level and maxHubs allow). links is
+     * every same-host link on the page, or null when the page was unchanged.
+     * Returns false if the page was not admitted as a hub.
+     */
+    public boolean observe(String url, int level, List<String> links) {
+        Hub h = hubs.get(url);
+        if (h == null) {
+            if (links == null || links.isEmpty() || level > maxHubLevel || hubs.size() >= maxHubs) return false;
+            h = new Hub(url, level, initialRate());
+            if (hubs.putIfAbsent(url, h) != null) h = hubs.get(url);
+        }
+        long now = System.currentTimeMillis();
+        visits.increment();
+        if (links == null) unchanged.increment();
+        synchronized (h) {
+            if (h.lastLinks != null) {
+                long elapsed = Math.max(1_000, now - h.lastVisitAt);
+                int fresh = links == null ? 0 : countNew(h.lastLinks, links);
+                h.rate = alpha * fresh / elapsed + (1 - alpha) * h.rate;
+            }
+            if (links != null) h.lastLinks = fingerprints(links);
+            else if (h.lastLinks == null) h.lastLinks = new long[0];
+            h.lastVisitAt = now;
+            h.intervalMs = intervalFor(h);
+            scheduleAt(h, now + h.intervalMs);
+        }
+        return true;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Due d = due.take();
+                Hub h = d.hub;
+                synchronized (h) {
+                    if (d.version != h.version) continue; // đã được lên lịch lại
+                    // Watchdog: nếu lượt này không báo về thì đẩy lại sau maxInterval
+                    scheduleAt(h, System.currentTimeMillis() + maxIntervalMs);
+                }
+                queue.pushTask(new UrlTask(h.url, h.level));
+                pushes.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Caller holds the hub's lock (or owns it exclusively)
+    private void scheduleAt(Hub h, long at) {
+        h.version++;
+        due.add(new Due(h, h.version, at));
+    }
+
+    private long intervalFor(Hub h) {
+        long min = hostHasFeeds.test(h.host) ? Math.max(minIntervalMs, feedHostMinIntervalMs) : minIntervalMs;
+        long max = Math.max(min, maxIntervalMs);
+        if (h.rate <= 0) return max;
+        double expected = targetNewLinks / h.rate;
+        return (long) Math.min(max, Math.max(min, expected));
+    }
+
+    private double initialRate() {
+        return targetNewLinks / Math.max(1, initialIntervalMs);
+    }
+
+    private static long[] fingerprints(List<String> links) {
+        long[] fps = new long[links.size()];
+        for (int i = 0; i < fps.length; i++) fps[i] = UrlFingerprint.of(links.get(i));
+        Arrays.sort(fps);
+        return fps;
+    }
+
+    private static int countNew(long[] previous, List<String> links) {
+        int n = 0;
+        for (String l : links) {
+            if (Arrays.binarySearch(previous, UrlFingerprint.of(l)) < 0) n++;
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        long[] intervals = hubs.values().stream().mapToLong(h -> h.intervalMs).filter(i -> i > 0).sorted().toArray();
+        String dist = intervals.length == 0 ? "n/a" : String.format("min=%ds median=%ds max=%ds",
+                intervals[0] / 1000, intervals[intervals.length / 2] / 1000, intervals[intervals.length - 1] / 1000);
+        return String.format("hubs=%d, visits=%d, unchanged=%d, pushes=%d, interval %s",
+                hubs.size(), visits.sum(), unchanged.sum(), pushes.sum(), dist);
+    }
+
+    private static final class Hub {
+        final String url;
+        final String host;
+        final int level;
+        double rate; // link mới / ms
+        long[] lastLinks; // null: chưa có lượt nào làm mốc
+        long lastVisitAt;
+        volatile long intervalMs;
+        long version;
+
+        Hub(String url, int level, double rate) {
+            this.url = url;
+            String host = UrlCanonicalizer.hostOf(url);
+            this.host = host == null ? "" : host;
+            this.level = level;
+            this.rate = rate;
+        }
+    }
+
+    private static final class Due implements Delayed {
+        final Hub hub;
+        final long version;
+        final long at;
+
+        Due(Hub hub, long version, long at) {
+            this.hub = hub;
+            this.version = version;
+            this.at = at;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(at - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(at, ((Due) o).at);
+        }
+    }
+}
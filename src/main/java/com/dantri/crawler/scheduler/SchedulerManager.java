@@ -1,7 +1,12 @@
 package com.dantri.crawler.scheduler;
 
+import com.dantri.crawler.classify.UrlShapeClassifier;
+import com.dantri.crawler.dedup.NearDuplicateDetector;
+import com.dantri.crawler.discovery.FeedDiscovery;
+import com.dantri.crawler.fetch.ValidatorCache;
 import com.dantri.crawler.job.CrawlJob;
 import com.dantri.crawler.queue.CrawlQueueManager;
+import com.dantri.crawler.visited.ShardedBloomFilter;
 import org.quartz.*;
 import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.Logger;
@@ -14,7 +19,9 @@ public class SchedulerManager {
     private static final Logger log = LoggerFactory.getLogger(SchedulerManager.class);
     private Scheduler scheduler;
 
-    public void start(CrawlQueueManager q) throws SchedulerException {
+    public void start(CrawlQueueManager q, ShardedBloomFilter preFilter, UrlShapeClassifier classifier,
+                      FeedDiscovery discovery, ValidatorCache validators, HubScheduler hubs,
+                      NearDuplicateDetector nearDup) throws SchedulerException {
         scheduler = StdSchedulerFactory.getDefaultScheduler();
 
         // Gọi CrawlJob.execute()
@@ -22,12 +29,18 @@ public class SchedulerManager {
                 .withIdentity("crawlJob","group")
                 .build();
         job.getJobDataMap().put("queueManager", q);
+        job.getJobDataMap().put("preFilter", preFilter);
+        job.getJobDataMap().put("urlClassifier", classifier);
+        job.getJobDataMap().put("discovery", discovery);
+        job.getJobDataMap().put("validatorCache", validators);
+        job.getJobDataMap().put("hubScheduler", hubs);
+        job.getJobDataMap().put("nearDup", nearDup);
 
         Trigger trg = newTrigger()
                 .withIdentity("crawlTrigger","group")
                 .startNow()
                 .withSchedule(SimpleScheduleBuilder.simpleSchedule()
-                        .withIntervalInMinutes(5) // Lập lịch 5 phút
+                        .withIntervalInMinutes(5) // Poll feed + thống kê mỗi 5 phút; hub do HubScheduler
                         .repeatForever())
                 .build();
 
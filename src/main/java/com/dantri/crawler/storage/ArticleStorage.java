@@ -1,28 +1,67 @@
 package com.dantri.crawler.storage;
 
+import com.dantri.crawler.config.ConfigLoader;
 import com.dantri.crawler.domain.Article;
+import com.dantri.crawler.metrics.Counter;
+import com.dantri.crawler.metrics.Metrics;
+import com.dantri.crawler.url.UrlCanonicalizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.net.URI;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.text.SimpleDateFormat;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Saves each article as CSV under:
- * data/<domain>/<yyyy>/<MM>/<timestamp>_<rand>.csv
- * Logs URL and parse layer.
+ * Appends articles to rolling segments under:
+ * data/<domain>/<yyyy>/<MM>/<timestamp>_<seq>.jsonl.gz (+ .idx sidecar)
+ * Logs URL and parse layer. Use {@link SegmentReader} to read them back.
+ * Safe to call from any number of workers: formatters are immutable and each
+ * domain/month directory is created once and then served from a cache.
  */
-public class ArticleStorage {
+public class ArticleStorage implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(ArticleStorage.class);
-    private static final SimpleDateFormat YEAR_FMT  = new SimpleDateFormat("yyyy");
-    private static final SimpleDateFormat MONTH_FMT = new SimpleDateFormat("MM");
-    private static final SimpleDateFormat TS_FMT    = new SimpleDateFormat("yyyyMMdd_HHmmssSSS");
-    private static final String BASE_DIR = "data";
+    private static final DateTimeFormatter TS_FMT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSS");
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final AtomicLong SEQ = new AtomicLong();
+    private static final Counter SAVED = Metrics.counter("crawler_articles_saved_total",
+            "Articles handed to storage, by extraction layer", "layer");
+
+    private final Path baseDir;
+    private final SegmentWriter writer;
+    // domain -> (year * 100 + month) -> thư mục đã tạo
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, Path>> dirs = new ConcurrentHashMap<>();
+
+    public ArticleStorage() {
+        this(Paths.get("data"));
+    }
+
+    /** Storage rooted at baseDir instead of data/, e.g. for a reparse run. */
+    public ArticleStorage(Path baseDir) {
+        this(baseDir, ConfigLoader.getStorageSegmentMaxBytes());
+    }
+
+    /** With an explicit roll size, so tests can force many segments. */
+    ArticleStorage(Path baseDir, long segmentMaxBytes) {
+        this.baseDir = baseDir;
+        this.writer = new SegmentWriter(
+                () -> segmentName(LocalDateTime.now(ZONE), SEQ.incrementAndGet()),
+                !"jsonl".equalsIgnoreCase(ConfigLoader.getStorageFormat()),
+                segmentMaxBytes,
+                ConfigLoader.getStorageSegmentMaxAgeMs(),
+                ConfigLoader.getStorageBatchSize(),
+                ConfigLoader.getStorageFlushIntervalMs());
+    }
 
     public void save(Article a) {
         try {
@@ -31,34 +70,45 @@ public class ArticleStorage {
                 log.warn("No publishTime, skip save: {}", a.getUrl());
                 return;
             }
-            String domain = new URI(a.getUrl()).getHost();
-            String year   = YEAR_FMT.format(p);
-            String month  = MONTH_FMT.format(p);
-            String dir    = BASE_DIR + File.separator + domain + File.separator + year + File.separator + month;
-            Files.createDirectories(new File(dir).toPath());
-
-            String ts    = TS_FMT.format(p);
-            String rand  = UUID.randomUUID().toString().substring(0, 6);
-            String name  = ts + "_" + rand + ".csv";
-            File   file  = new File(dir, name);
-
-            try (FileWriter w = new FileWriter(file)) {
-                w.write("url,title,description,content,publishTime,author,category\n");
-                w.append(csv(a.getUrl())).append(',')
-                        .append(csv(a.getTitle())).append(',')
-                        .append(csv(a.getDescription())).append(',')
-                        .append(csv(a.getContent())).append(',')
-                        .append(p.toString()).append(',')
-                        .append(csv(a.getAuthor())).append(',')
-                        .append(csv(a.getCategory())).append('\n');
+            String domain = UrlCanonicalizer.hostOf(a.getUrl());
+            if (domain == null || domain.isEmpty()) {
+                log.warn("No host, skip save: {}", a.getUrl());
+                return;
             }
+            writer.submit(dirFor(domain, p), a);
+            SAVED.labels(String.valueOf(a.getParseLayer())).increment();
             log.info("Saved article: {} via {}", a.getUrl(), a.getParseLayer());
         } catch (Exception e) {
             log.error("Error saving article {}", a.getUrl(), e);
         }
     }
 
-    private String csv(String s) {
-        return s == null ? "" : s.replaceAll("[,\n\r]", " ");
+    /** Directory for domain/yyyy/MM, created on first use. */
+    Path dirFor(String domain, Date publishTime) {
+        ZonedDateTime t = publishTime.toInstant().atZone(ZONE);
+        int yearMonth = t.getYear() * 100 + t.getMonthValue();
+        return dirs.computeIfAbsent(domain, d -> new ConcurrentHashMap<>())
+                .computeIfAbsent(yearMonth, ym -> createDir(baseDir, domain, ym));
+    }
+
+    private static Path createDir(Path baseDir, String domain, int yearMonth) {
+        Path dir = baseDir.resolve(Paths.get(domain,
+                String.format("%04d", yearMonth / 100), String.format("%02d", yearMonth % 100)));
+        try {
+            return Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Timestamp plus a per-process sequence, so names never collide within a run. */
+    static String segmentName(LocalDateTime now, long seq) {
+        return TS_FMT.format(now) + "_" + String.format("%06d", seq);
+    }
+
+    /** Writes out queued articles and closes the open segments. */
+    @Override
+    public void close() {
+        writer.close();
     }
 }
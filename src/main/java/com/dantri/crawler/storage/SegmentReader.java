@@ -0,0 +1,104 @@
+package com.dantri.crawler.storage;
+
+import com.dantri.crawler.domain.Article;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads segments written by {@link ArticleStorage}: full iteration, or random
+ * access through the sidecar index (url -> offset, line).
+ */
+public final class SegmentReader {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private SegmentReader() {
+    }
+
+    /** Position of one article inside a segment. */
+    public record Entry(Path segment, long offset, int line) {}
+
+    /** Calls action for every article in the segment, in write order. */
+    public static void forEach(Path segment, Consumer<Article> action) throws IOException {
+        try (BufferedReader r = open(segment, 0)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (!line.isEmpty()) action.accept(MAPPER.readValue(line, Article.class));
+            }
+        }
+    }
+
+    /** Lazily streams the segment; close the stream to release the file. */
+    public static Stream<Article> stream(Path segment) throws IOException {
+        BufferedReader r = open(segment, 0);
+        return r.lines()
+                .filter(l -> !l.isEmpty())
+                .map(SegmentReader::decode)
+                .onClose(() -> {
+                    try {
+                        r.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /** Reads the sidecar index of a segment; a later entry for the same url wins. */
+    public static Map<String, Entry> readIndex(Path segment) throws IOException {
+        Map<String, Entry> index = new LinkedHashMap<>();
+        Path idx = segment.resolveSibling(segment.getFileName() + SegmentWriter.INDEX_SUFFIX);
+        try (Stream<String> lines = Files.lines(idx, StandardCharsets.UTF_8)) {
+            lines.forEach(l -> {
+                String[] f = l.split("\t");
+                if (f.length == 3) {
+                    index.put(f[0], new Entry(segment, Long.parseLong(f[1]), Integer.parseInt(f[2])));
+                }
+            });
+        }
+        return index;
+    }
+
+    /** Reads a single article, decoding only the gzip member that holds it. */
+    public static Article read(Entry e) throws IOException {
+        try (BufferedReader r = open(e.segment(), e.offset())) {
+            for (int i = 0; i < e.line(); i++) {
+                if (r.readLine() == null) return null;
+            }
+            String line = r.readLine();
+            return line == null ? null : MAPPER.readValue(line, Article.class);
+        }
+    }
+
+    private static BufferedReader open(Path segment, long offset) throws IOException {
+        FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ);
+        ch.position(offset);
+        InputStream in = Channels.newInputStream(ch);
+        if (segment.getFileName().toString().endsWith(".gz")) in = new GZIPInputStream(in, 64 * 1024);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static Article decode(String line) {
+        try {
+            return MAPPER.readValue(line, Article.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.dantri.crawler.storage;
+
+import com.dantri.crawler.domain.Article;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends articles to rolling segment files on a dedicated writer thread.
+ * <p>
+ * One open segment per directory (domain/year/month). Articles are written in
+ * batches as JSON lines; with compression on, every batch is its own gzip
+ * member, so the file is a normal .jsonl.gz and a member can be decoded on its
+ * own. Each segment has a sidecar index with one "url \t offset \t line" entry
+ * per article, where offset is the byte offset of the gzip member (or of the
+ * line itself when uncompressed) and line is the position inside the member.
+ * Segments roll when they exceed maxBytes or have been open for maxAgeMs.
+ */
+class SegmentWriter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentWriter.class);
+    static final String INDEX_SUFFIX = ".idx";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Map<Path, Segment> open = new HashMap<>();
+    private final Supplier<String> segmentName;
+    private final boolean gzip;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    SegmentWriter(Supplier<String> segmentName, boolean gzip, long maxBytes, long maxAgeMs,
+                  int batchSize, long flushIntervalMs) {
+        this.segmentName = segmentName;
+        this.gzip = gzip;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.writer = new Thread(this::run, "segment-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Queues an article for the segment directory dir; never blocks on disk. */
+    void submit(Path dir, Article a) {
+        queue.add(new Pending(dir, a));
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+                rollExpired();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.error("Segment write failed, {} articles lost", batch.size(), e);
+                batch.clear();
+            }
+        }
+        for (Segment s : open.values()) s.closeQuietly();
+        open.clear();
+    }
+
+    private void write(List<Pending> batch) throws IOException {
+        Map<Path, List<Article>> byDir = new LinkedHashMap<>();
+        for (Pending p : batch) byDir.computeIfAbsent(p.dir, k -> new ArrayList<>()).add(p.article);
+        for (Map.Entry<Path, List<Article>> e : byDir.entrySet()) {
+            Segment s = open.get(e.getKey());
+            if (s == null) {
+                s = new Segment(e.getKey().resolve(segmentName.get() + (gzip ? ".jsonl.gz" : ".jsonl")));
+                open.put(e.getKey(), s);
+            }
+            s.append(e.getValue());
+            if (s.bytes >= maxBytes) {
+                s.closeQuietly();
+                open.remove(e.getKey());
+            }
+        }
+    }
+
+    private void rollExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Segment> it = open.values().iterator();
+        while (it.hasNext()) {
+            Segment s = it.next();
+            if (now - s.openedAt >= maxAgeMs) {
+                s.closeQuietly();
+                it.remove();
+            }
+        }
+    }
+
+    /** Writes everything queued so far and closes all open segments. */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Segment {
+        final Path path;
+        final OutputStream out;
+        final BufferedWriter index;
+        final long openedAt = System.currentTimeMillis();
+        long bytes;
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            this.out = new BufferedOutputStream(Files.newOutputStream(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            this.index = Files.newBufferedWriter(path.resolveSibling(path.getFileName() + INDEX_SUFFIX),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            this.bytes = Files.size(path);
+            log.info("Opened segment {}", path);
+        }
+
+        void append(List<Article> articles) throws IOException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            long memberOffset = bytes;
+            if (gzip) {
+                try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+                    for (int i = 0; i < articles.size(); i++) {
+                        gz.write(mapper.writeValueAsBytes(articles.get(i)));
+                        gz.write('\n');
+                        indexEntry(articles.get(i), memberOffset, i);
+                    }
+                }
+            } else {
+                for (Article a : articles) {
+                    indexEntry(a, memberOffset + buf.size(), 0);
+                    buf.write(mapper.writeValueAsBytes(a));
+                    buf.write('\n');
+                }
+            }
+            buf.writeTo(out);
+            out.flush();
+            index.flush();
+            bytes += buf.size();
+        }
+
+        private void indexEntry(Article a, long offset, int line) throws IOException {
+            index.write(a.getUrl());
+            index.write('\t');
+            index.write(Long.toString(offset));
+            index.write('\t');
+            index.write(Integer.toString(line));
+            index.write('\n');
+        }
+
+        void closeQuietly() {
+            try {
+                out.close();
+                index.close();
+                log.info("Closed segment {} ({} bytes)", path, bytes);
+            } catch (IOException e) {
+                log.error("Error closing segment {}", path, e);
+            }
+        }
+    }
+
+    private record Pending(Path dir, Article article) {}
+}
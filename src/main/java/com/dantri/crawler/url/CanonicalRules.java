@@ -0,0 +1,94 @@
+package com.dantri.crawler.url;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Canonicalization rules for one domain: tracking parameters to drop,
+ * AMP path rewrites and AMP parameters, query sorting and trailing slashes.
+ * Domain rules extend the global lists and may override the flags.
+ */
+class CanonicalRules {
+    private final List<String> trackingParams;  // "utm_*" = prefix match
+    private final List<String> ampParams;       // "amp" or "outputType=amp"
+    private final List<Pattern> ampPatterns;
+    private final List<String> ampReplacements;
+    private final boolean sortQuery;
+    private final boolean stripTrailingSlash;
+
+    private CanonicalRules(List<String> trackingParams, List<String> ampParams,
+                           List<Pattern> ampPatterns, List<String> ampReplacements,
+                           boolean sortQuery, boolean stripTrailingSlash) {
+        this.trackingParams = trackingParams;
+        this.ampParams = ampParams;
+        this.ampPatterns = ampPatterns;
+        this.ampReplacements = ampReplacements;
+        this.sortQuery = sortQuery;
+        this.stripTrailingSlash = stripTrailingSlash;
+    }
+
+    static CanonicalRules fromJson(JsonNode n) {
+        return new CanonicalRules(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                n.path("sortQuery").asBoolean(true),
+                n.path("stripTrailingSlash").asBoolean(true))
+                .extend(n);
+    }
+
+    /** Copy of these rules with the lists of n appended and its flags applied. */
+    CanonicalRules extend(JsonNode n) {
+        CanonicalRules r = new CanonicalRules(
+                new ArrayList<>(trackingParams), new ArrayList<>(ampParams),
+                new ArrayList<>(ampPatterns), new ArrayList<>(ampReplacements),
+                n.path("sortQuery").asBoolean(sortQuery),
+                n.path("stripTrailingSlash").asBoolean(stripTrailingSlash));
+        n.path("trackingParams").forEach(p -> r.trackingParams.add(p.asText().toLowerCase()));
+        n.path("ampParams").forEach(p -> r.ampParams.add(p.asText().toLowerCase()));
+        n.path("ampRules").forEach(p -> {
+            r.ampPatterns.add(Pattern.compile(p.path("pattern").asText()));
+            r.ampReplacements.add(p.path("replace").asText(""));
+        });
+        return r;
+    }
+
+    String path(String rawPath) {
+        String path = rawPath == null || rawPath.isEmpty() ? "/" : rawPath;
+        for (int i = 0; i < ampPatterns.size(); i++) {
+            path = ampPatterns.get(i).matcher(path).replaceAll(ampReplacements.get(i));
+        }
+        if (path.isEmpty()) path = "/";
+        if (stripTrailingSlash && path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /** Drops tracking / AMP params and optionally sorts the rest; null if nothing is left. */
+    String query(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) return null;
+        List<String> kept = new ArrayList<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = (eq < 0 ? pair : pair.substring(0, eq)).toLowerCase();
+            if (isTracking(name) || ampParams.contains(name) || ampParams.contains(pair.toLowerCase())) continue;
+            kept.add(pair);
+        }
+        if (kept.isEmpty()) return null;
+        if (sortQuery) {
+            // stable: giữ thứ tự gốc cho các param trùng tên
+            kept.sort(Comparator.comparing(p -> p.indexOf('=') < 0 ? p : p.substring(0, p.indexOf('='))));
+        }
+        return String.join("&", kept);
+    }
+
+    private boolean isTracking(String name) {
+        for (String t : trackingParams) {
+            if (t.endsWith("*") ? name.startsWith(t.substring(0, t.length() - 1)) : name.equals(t)) return true;
+        }
+        return false;
+    }
+}
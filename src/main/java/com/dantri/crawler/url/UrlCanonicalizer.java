@@ -0,0 +1,183 @@
+package com.dantri.crawler.url;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.net.IDN;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps URL variants to one canonical form, which is the key used by the
+ * frontier, the visited store and the non-article store.
+ * <ul>
+ *   <li>scheme and host lowercased, default port and fragment removed</li>
+ *   <li>www / amp. host variants folded onto the host used by the seed list</li>
+ *   <li>tracking and AMP parameters dropped, remaining parameters sorted</li>
+ *   <li>AMP path rewrites and trailing slash removal</li>
+ *   <li>spaces, non-ASCII and other characters {@link URI} rejects percent-encoded
+ *       as UTF-8 (IDN hosts converted to ASCII), existing escapes kept</li>
+ * </ul>
+ * Rules come from the "canonicalization" config section; "domains" entries
+ * extend the global rules for a domain and its subdomains.
+ */
+public class UrlCanonicalizer {
+    private final CanonicalRules global;
+    private final Map<String, CanonicalRules> domainRules;
+    private final Set<String> seedHosts;
+
+    public UrlCanonicalizer(JsonNode config, List<String> seeds) {
+        this.global = CanonicalRules.fromJson(config);
+        this.domainRules = new HashMap<>();
+        config.path("domains").fields().forEachRemaining(e ->
+                domainRules.put(e.getKey().toLowerCase(), global.extend(e.getValue())));
+        this.seedHosts = new HashSet<>();
+        for (String s : seeds) {
+            try {
+                String h = new URI(s.trim()).getHost();
+                if (h != null) seedHosts.add(h.toLowerCase());
+            } catch (URISyntaxException ignored) {}
+        }
+    }
+
+    public static UrlCanonicalizer fromConfig() {
+        return new UrlCanonicalizer(ConfigLoader.getCanonicalization(), ConfigLoader.getStartUrls());
+    }
+
+    /** Canonical form of url, or null if it is not a crawlable http(s) URL. */
+    public String canonicalize(String url) {
+        if (url == null || url.isBlank()) return null;
+        URI u;
+        try {
+            u = new URI(escape(url.trim()));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        String scheme = u.getScheme();
+        String host = u.getHost();
+        if (scheme == null || host == null) return null;
+        scheme = scheme.toLowerCase();
+        if (!scheme.equals("http") && !scheme.equals("https")) return null;
+
+        host = foldHost(host.toLowerCase());
+        CanonicalRules rules = rulesFor(host);
+        int port = u.getPort();
+        if ((port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"))) port = -1;
+
+        StringBuilder sb = new StringBuilder(url.length());
+        sb.append(scheme).append("://").append(host);
+        if (port != -1) sb.append(':').append(port);
+        sb.append(rules.path(u.getRawPath()));
+        String query = rules.query(u.getRawQuery());
+        if (query != null) sb.append('?').append(query);
+        return sb.toString();
+    }
+
+    /**
+     * Canonical URL declared by the page via link rel=canonical, if it stays on
+     * the same host as the fetched URL; otherwise null.
+     */
+    public String fromDocument(Document doc, String pageUrl) {
+        Element link = doc.selectFirst("link[rel=canonical][href]");
+        if (link == null) return null;
+        String declared = canonicalize(link.absUrl("href"));
+        if (declared == null) return null;
+        String host = hostOf(declared);
+        return host != null && host.equals(hostOf(pageUrl)) ? declared : null;
+    }
+
+    /**
+     * Makes a URL as written in HTML acceptable to {@link URI}: the host is
+     * converted with {@link IDN#toASCII}, other illegal characters are
+     * percent-encoded. Returns url itself when nothing needs escaping.
+     */
+    static String escape(String url) {
+        int i = 0;
+        while (i < url.length() && isUriChar(url, i)) i++;
+        if (i == url.length()) return url;
+
+        StringBuilder sb = new StringBuilder(url.length() + 16);
+        int authStart = url.indexOf("://");
+        int pos = 0;
+        if (authStart > 0 && authStart < i) {
+            // Authority: host tiếng Việt / IDN phải thành punycode, không phải %XX
+            authStart += 3;
+            int authEnd = authStart;
+            while (authEnd < url.length() && "/?#".indexOf(url.charAt(authEnd)) < 0) authEnd++;
+            int hostStart = url.lastIndexOf('@', authEnd - 1) + 1;
+            if (hostStart < authStart) hostStart = authStart;
+            int hostEnd = url.indexOf(':', hostStart);
+            if (hostEnd < 0 || hostEnd > authEnd) hostEnd = authEnd;
+            sb.append(url, 0, hostStart).append(IDN.toASCII(url.substring(hostStart, hostEnd)));
+            pos = hostEnd;
+        }
+        boolean fragment = false;
+        for (; pos < url.length(); pos++) {
+            char c = url.charAt(pos);
+            if (c == '#' && !fragment) {
+                fragment = true;
+                sb.append(c);
+            } else if (c != '#' && isUriChar(url, pos)) {
+                sb.append(c);
+            } else {
+                int end = Character.isHighSurrogate(c) && pos + 1 < url.length() ? pos + 2 : pos + 1;
+                for (byte b : url.substring(pos, end).getBytes(StandardCharsets.UTF_8)) {
+                    sb.append('%').append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+                }
+                pos = end - 1;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static boolean isUriChar(String s, int i) {
+        char c = s.charAt(i);
+        if (c == '%') {
+            return i + 2 < s.length() && Character.digit(s.charAt(i + 1), 16) >= 0
+                    && Character.digit(s.charAt(i + 2), 16) >= 0;
+        }
+        return c < 128 && (Character.isLetterOrDigit(c) || "-._~:/?#[]@!$&'()*+,;=".indexOf(c) >= 0);
+    }
+
+    /** Host of an already canonical URL. */
+    public static String hostOf(String canonicalUrl) {
+        int start = canonicalUrl.indexOf("://");
+        if (start < 0) return null;
+        start += 3;
+        int end = start;
+        while (end < canonicalUrl.length() && "/:?".indexOf(canonicalUrl.charAt(end)) < 0) end++;
+        return canonicalUrl.substring(start, end);
+    }
+
+    private String foldHost(String host) {
+        if (host.endsWith(".")) host = host.substring(0, host.length() - 1);
+        if (seedHosts.contains(host)) return host;
+        String bare = host.startsWith("www.") ? host.substring(4)
+                : host.startsWith("amp.") ? host.substring(4)
+                : host;
+        if (seedHosts.contains(bare)) return bare;
+        if (seedHosts.contains("www." + bare)) return "www." + bare;
+        return host;
+    }
+
+    private CanonicalRules rulesFor(String host) {
+        String h = host;
+        while (h != null && !h.isEmpty()) {
+            CanonicalRules r = domainRules.get(h);
+            if (r != null) return r;
+            int dot = h.indexOf('.');
+            h = dot < 0 ? null : h.substring(dot + 1);
+        }
+        return global;
+    }
+}
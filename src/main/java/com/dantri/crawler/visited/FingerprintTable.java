@@ -0,0 +1,263 @@
+package com.dantri.crawler.visited;
+
+import com.dantri.crawler.url.UrlFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of 64-bit fingerprints stored in a memory-mapped file.
+ * <p>
+ * Layout: a 64-byte header (magic, capacity, size) followed by {@code capacity}
+ * long slots, 0 meaning empty; linear probing, grown x2 above 50% load.
+ * Lookups are lock-free (acquire reads plus an optimistic stamp that only a
+ * resize invalidates); inserts claim slots with CAS and share a read lock so
+ * they only exclude resizes. Opening an existing file maps it without reading
+ * it, so startup cost does not depend on the number of entries.
+ * <p>
+ * At {@code MAX_CAPACITY} the table stops growing; once it reaches the load
+ * limit there it is {@link #isFull() full} and {@link #add} no longer stores
+ * anything, leaving the caller to keep new fingerprints elsewhere.
+ */
+class FingerprintTable implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(FingerprintTable.class);
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long MAGIC = 0x3150465649524443L; // "CDRIVFP1"
+    private static final int HEADER = 64;
+    private static final int CAPACITY_OFF = 8;
+    private static final int SIZE_OFF = 16;
+    private static final long MAX_CAPACITY = 1L << 27; // 1 GB mapping
+
+    private final Path file;
+    private final StampedLock resizeLock = new StampedLock();
+    private volatile MappedByteBuffer buf;
+    private volatile FileChannel channel;
+    private volatile long mask;
+    private volatile boolean full;
+
+    private FingerprintTable(Path file) {
+        this.file = file;
+    }
+
+    static FingerprintTable open(Path file, long initialCapacity) throws IOException {
+        FingerprintTable t = new FingerprintTable(file);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        if (Files.exists(file) && t.mapExisting()) {
+            log.info("Mapped {} fingerprints from {}", t.size(), file);
+        } else {
+            Path tmp = tmpFile(file);
+            t.attach(create(tmp, Long.highestOneBit(Math.max(1024, initialCapacity - 1) << 1)));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return t;
+    }
+
+    boolean contains(long fp) {
+        long stamp = resizeLock.tryOptimisticRead();
+        boolean found = probe(buf, fp);
+        if (resizeLock.validate(stamp)) return found;
+        stamp = resizeLock.readLock();
+        try {
+            return probe(buf, fp);
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * True if fp was not present before. When the table is full fp is not
+     * stored, so a later {@link #contains} will not see it.
+     */
+    boolean add(long fp) {
+        long size;
+        long stamp = resizeLock.readLock();
+        try {
+            MappedByteBuffer b = buf;
+            long m = mask;
+            if (full) return !probe(b, fp);
+            long idx = UrlFingerprint.fmix(fp) & m;
+            long probes = 0;
+            while (true) {
+                int off = slot(idx);
+                long v = (long) LONGS.getAcquire(b, off);
+                if (v == fp) return false;
+                if (v == 0) {
+                    if (LONGS.compareAndSet(b, off, 0L, fp)) break;
+                    continue; // slot vừa bị chiếm, đọc lại
+                }
+                if (++probes > m) {
+                    markFull(m + 1);
+                    return true;
+                }
+                idx = (idx + 1) & m;
+            }
+            size = (long) LONGS.getAndAdd(b, SIZE_OFF, 1L) + 1;
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+        if (size > (mask + 1) / 2) grow();
+        return true;
+    }
+
+    /** True once the table is at max capacity and load; see {@link #add}. */
+    boolean isFull() {
+        return full;
+    }
+
+    /** Visits every stored fingerprint; inserts running concurrently may or may not be seen. */
+    void forEach(LongConsumer action) {
+        long stamp = resizeLock.readLock();
+        try {
+            MappedByteBuffer b = buf;
+            for (long i = 0; i <= mask; i++) {
+                long v = (long) LONGS.getAcquire(b, slot(i));
+                if (v != 0) action.accept(v);
+            }
+        } finally {
+            resizeLock.unlockRead(stamp);
+        }
+    }
+
+    long size() {
+        return (long) LONGS.getAcquire(buf, SIZE_OFF);
+    }
+
+    long capacity() {
+        return mask + 1;
+    }
+
+    /** Forces dirty pages to disk. */
+    void flush() {
+        buf.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        long stamp = resizeLock.writeLock();
+        try {
+            buf.force();
+            channel.close();
+        } finally {
+            resizeLock.unlockWrite(stamp);
+        }
+    }
+
+    private static boolean probe(MappedByteBuffer b, long fp) {
+        // mask lấy từ chính buffer: buf và mask có thể bị đổi lệch nhau khi đang grow
+        long m = (b.capacity() - HEADER) / 8 - 1;
+        long idx = UrlFingerprint.fmix(fp) & m;
+        for (long i = 0; i <= m; i++) {
+            long v = (long) LONGS.getAcquire(b, slot(idx));
+            if (v == fp) return true;
+            if (v == 0) return false;
+            idx = (idx + 1) & m;
+        }
+        return false;
+    }
+
+    private void markFull(long cap) {
+        if (full) return;
+        full = true;
+        log.error("Fingerprint table {} is full at {} slots; new entries are no longer stored", file, cap);
+    }
+
+    private void grow() {
+        long stamp = resizeLock.writeLock();
+        try {
+            long oldCap = mask + 1;
+            if (size() <= oldCap / 2) return; // thread khác đã grow
+            if (oldCap >= MAX_CAPACITY) {
+                markFull(oldCap);
+                return;
+            }
+            Path tmp = tmpFile(file);
+            FileChannel ch = create(tmp, oldCap * 2);
+            MappedByteBuffer nb = map(ch);
+            long nm = oldCap * 2 - 1;
+            MappedByteBuffer ob = buf;
+            for (long i = 0; i < oldCap; i++) {
+                long v = (long) LONGS.get(ob, slot(i));
+                if (v == 0) continue;
+                long idx = UrlFingerprint.fmix(v) & nm;
+                while ((long) LONGS.get(nb, slot(idx)) != 0) idx = (idx + 1) & nm;
+                LONGS.set(nb, slot(idx), v);
+            }
+            LONGS.set(nb, SIZE_OFF, size());
+            nb.force();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel old = channel;
+            channel = ch;
+            buf = nb;
+            mask = nm;
+            old.close();
+            log.info("Grew fingerprint table {} to {} slots", file, oldCap * 2);
+        } catch (IOException e) {
+            log.error("Failed to grow fingerprint table {}", file, e);
+        } finally {
+            resizeLock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean mapExisting() throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long len = ch.size();
+        if (len >= HEADER) {
+            MappedByteBuffer b = map(ch);
+            long cap = (long) LONGS.get(b, CAPACITY_OFF);
+            if ((long) LONGS.get(b, 0) == MAGIC && Long.bitCount(cap) == 1 && len == HEADER + cap * 8) {
+                channel = ch;
+                buf = b;
+                mask = cap - 1;
+                if (cap >= MAX_CAPACITY && size() > cap / 2) markFull(cap);
+                return true;
+            }
+        }
+        ch.close();
+        log.warn("Ignoring corrupt fingerprint table {}", file);
+        return false;
+    }
+
+    private void attach(FileChannel ch) throws IOException {
+        MappedByteBuffer b = map(ch);
+        channel = ch;
+        buf = b;
+        mask = (long) LONGS.get(b, CAPACITY_OFF) - 1;
+    }
+
+    private static FileChannel create(Path path, long capacity) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long len = HEADER + capacity * 8;
+        MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_WRITE, 0, len);
+        LONGS.set(b, 0, MAGIC);
+        LONGS.set(b, CAPACITY_OFF, capacity);
+        LONGS.set(b, SIZE_OFF, 0L);
+        return ch;
+    }
+
+    private static MappedByteBuffer map(FileChannel ch) throws IOException {
+        return ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+    }
+
+    private static int slot(long idx) {
+        return (int) (HEADER + idx * 8);
+    }
+
+    private static Path tmpFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+}
@@ -1,6 +1,8 @@
 package com.dantri.crawler.visited;
 
 import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.persist.GroupCommitWriter;
+import com.dantri.crawler.url.UrlFingerprint;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,6 +10,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
@@ -15,105 +18,148 @@ import java.nio.file.*;
 import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class NonArticleStore {
+/**
+ * Non-article URLs with a TTL (settings.nonArticleTTL).
+ * <p>
+ * Reads are a lock-free map lookup plus an age check and never touch disk.
+ * Expiry is driven by a {@link TimingWheel} ticking once per second. The store
+ * is persisted as an append-only JSONL log of {"url","skippedAt"} records and
+ * {"url","skippedAt","removedAt"} tombstones; a background task compacts it to the live
+ * entries once dead records outnumber them. Log writes go through the shared
+ * {@link GroupCommitWriter}, so marking never waits on disk.
+ */
+public class NonArticleStore implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(NonArticleStore.class);
     private static final Path FILE = Paths.get("data/non_article_urls.jsonl");
     private static final long TTL_MS = ConfigLoader.getNonArticleTTL();
+    private static final long MIN_COMPACT_RECORDS = 10_000;
 
     private final Map<String, Long> map = new ConcurrentHashMap<>();
+    private final ShardedBloomFilter preFilter;
     private final ObjectMapper mapper = new ObjectMapper();
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final TimingWheel<String> wheel = new TimingWheel<>(1000, 4, System.currentTimeMillis());
+    private final AtomicLong expired = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "non-article-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+    private final GroupCommitWriter.Log appendLog;
 
-    public NonArticleStore() {
-        load();
-        // schedule cleanup every minute
-        scheduler.scheduleAtFixedRate(this::cleanupExpired, 1, 1, TimeUnit.MINUTES);
+    public NonArticleStore(ShardedBloomFilter preFilter, GroupCommitWriter writer) throws IOException {
+        this.preFilter = preFilter;
+        long records = load();
+        map.forEach((url, skippedAt) -> {
+            preFilter.put(UrlFingerprint.of(url));
+            wheel.schedule(url, skippedAt + TTL_MS);
+        });
+        appendLog = writer.open(FILE, records);
+        scheduler.scheduleAtFixedRate(this::expire, 1, 1, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::compactIfNeeded, 1, 1, TimeUnit.MINUTES);
     }
 
-    private void load() {
-        if (!Files.exists(FILE)) return;
+    /** Replays the log (last record per URL wins); returns the number of records read. */
+    private long load() {
+        if (!Files.exists(FILE)) return 0;
+        long[] records = {0};
+        long now = System.currentTimeMillis();
         try (Stream<String> lines = Files.lines(FILE, StandardCharsets.UTF_8)) {
             lines.forEach(line -> {
+                records[0]++;
                 try {
                     JsonNode n = mapper.readTree(line);
                     String url = n.get("url").asText();
-                    Instant inst = Instant.parse(n.get("skippedAt").asText());
-                    map.put(url, inst.toEpochMilli());
+                    long skippedAt = Instant.parse(n.get("skippedAt").asText()).toEpochMilli();
+                    if (n.has("removedAt")) {
+                        // Tombstone chỉ xóa đúng lần mark mà nó đã hết hạn
+                        map.remove(url, skippedAt);
+                    } else {
+                        map.put(url, skippedAt);
+                    }
                 } catch (Exception e) {
                     log.warn("Skipping invalid line in non-article store: {}", line);
                 }
             });
-            log.info("Loaded {} non-article URLs", map.size());
+            map.values().removeIf(t -> now - t >= TTL_MS);
+            log.info("Loaded {} non-article URLs from {} log records", map.size(), records[0]);
         } catch (IOException e) {
             log.error("Error reading non-article JSONL store", e);
         }
+        return records[0];
     }
 
-    /** Clean up expired entries and rewrite file if any removed */
-    private synchronized void cleanupExpired() {
-        long now = System.currentTimeMillis();
-        boolean changed = map.entrySet().removeIf(e -> (now - e.getValue()) >= TTL_MS);
-        if (changed) {
-            rewriteStore();
-            log.info("Cleaned up expired non-article URLs, remaining={}", map.size());
-        }
-    }
-
-    public synchronized boolean isNonArticle(String url) {
+    public boolean isNonArticle(String url) {
         Long t = map.get(url);
-        if (t == null) return false;
-        if ((System.currentTimeMillis() - t) >= TTL_MS) {
-            map.remove(url);
-            rewriteStore();
-            return false;
-        }
-        return true;
+        // Entry hết hạn được timing wheel dọn, không ghi đĩa trên đường đọc
+        return t != null && System.currentTimeMillis() - t < TTL_MS;
     }
 
-    public synchronized void markNonArticle(String url) {
+    public void markNonArticle(String url) {
         long now = System.currentTimeMillis();
         map.put(url, now);
+        preFilter.put(UrlFingerprint.of(url));
+        wheel.schedule(url, now + TTL_MS);
+        appendLog.append(record(url, now, null));
+    }
+
+    private void expire() {
         try {
-            Files.createDirectories(FILE.getParent());
-            ObjectNode node = mapper.createObjectNode();
-            node.put("url", url);
-            node.put("skippedAt", Instant.ofEpochMilli(now).toString());
-            Files.writeString(
-                    FILE,
-                    mapper.writeValueAsString(node) + "\n",
-                    StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.APPEND
-            );
-        } catch (IOException e) {
-            log.error("Failed to append to non-article store: {}", url, e);
+            long now = System.currentTimeMillis();
+            wheel.advance(now, (url, deadline) -> {
+                // Chỉ xóa nếu URL chưa được mark lại sau lần schedule này
+                if (map.remove(url, deadline - TTL_MS)) {
+                    expired.incrementAndGet();
+                    appendLog.append(record(url, deadline - TTL_MS, now));
+                }
+            });
+        } catch (Exception e) {
+            log.error("Non-article expiry failed", e);
         }
     }
 
-    private synchronized void rewriteStore() {
+    private void compactIfNeeded() {
+        long records = appendLog.records();
+        if (records < MIN_COMPACT_RECORDS || records < 2L * map.size()) return;
+        appendLog.compact(() -> map.entrySet().stream()
+                        .map(e -> record(e.getKey(), e.getValue(), null))
+                        .collect(Collectors.toList()))
+                .whenComplete((v, e) -> {
+                    if (e != null) log.error("Failed to compact non-article store", e);
+                    else log.info("Compacted non-article log: {} -> {} records, expired so far={}",
+                            records, appendLog.records(), expired.get());
+                });
+    }
+
+    /** Put record, or a tombstone when removedAt is set. */
+    private String record(String url, long skippedAt, Long removedAt) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("url", url);
+        node.put("skippedAt", Instant.ofEpochMilli(skippedAt).toString());
+        if (removedAt != null) node.put("removedAt", Instant.ofEpochMilli(removedAt).toString());
         try {
-            Files.createDirectories(FILE.getParent());
-            Files.write(
-                    FILE,
-                    map.entrySet().stream().map(e -> {
-                        ObjectNode node = mapper.createObjectNode();
-                        node.put("url", e.getKey());
-                        node.put("skippedAt", Instant.ofEpochMilli(e.getValue()).toString());
-                        try {
-                            return mapper.writeValueAsString(node);
-                        } catch (JsonProcessingException ex) {
-                            throw new UncheckedIOException(ex);
-                        }
-                    }).collect(Collectors.toList()),
-                    StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING
-            );
-        } catch (IOException e) {
-            log.error("Failed to rewrite non-article store", e);
+            return mapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
     }
+
+    public int size() {
+        return map.size();
+    }
+
+    /** Visits the URLs currently marked as non-article. */
+    public void forEachUrl(Consumer<String> action) {
+        map.keySet().forEach(action);
+    }
+
+    /** Stops expiry; the log itself is closed with the shared writer. */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
 }
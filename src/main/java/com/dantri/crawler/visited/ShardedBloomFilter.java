@@ -0,0 +1,116 @@
+package com.dantri.crawler.visited;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.url.UrlFingerprint;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter over URL fingerprints, kept up to date by
+ * {@link VisitedUrlsManager} and {@link NonArticleStore}. A negative answer
+ * means the URL is in neither store, so both exact lookups can be skipped.
+ * <p>
+ * Bits are split into independent shards (picked by the top fingerprint bits)
+ * backed by {@link AtomicLongArray}s; bits are set with CAS and never cleared,
+ * so expired non-article entries only cost false positives.
+ */
+public class ShardedBloomFilter {
+    private final AtomicLongArray[] shards;
+    private final int shardShift;
+    private final long bitsPerShard;
+    private final int hashes;
+    private final long expectedItems;
+    private final double targetFpp;
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+
+    public ShardedBloomFilter(long expectedItems, double fpp, long maxBytes, int shardCount) {
+        int shardsPow2 = Integer.highestOneBit(Math.max(1, shardCount));
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedItems * Math.log(fpp) / (ln2 * ln2));
+        bits = Math.min(bits, maxBytes * 8);
+        long words = Math.max(1, (bits / shardsPow2 + 63) / 64);
+        this.bitsPerShard = words * 64;
+        this.hashes = Math.max(1, (int) Math.round((double) bitsPerShard * shardsPow2 / expectedItems * ln2));
+        this.shards = new AtomicLongArray[shardsPow2];
+        for (int i = 0; i < shardsPow2; i++) shards[i] = new AtomicLongArray((int) words);
+        this.shardShift = 64 - Integer.numberOfTrailingZeros(shardsPow2);
+        this.expectedItems = expectedItems;
+        this.targetFpp = fpp;
+    }
+
+    public static ShardedBloomFilter fromConfig() {
+        return new ShardedBloomFilter(
+                ConfigLoader.getPreFilterExpectedItems(),
+                ConfigLoader.getPreFilterFalsePositiveRate(),
+                ConfigLoader.getPreFilterMaxBytes(),
+                ConfigLoader.getPreFilterShards());
+    }
+
+    public void put(long fp) {
+        AtomicLongArray shard = shardOf(fp);
+        long h1 = UrlFingerprint.fmix(fp);
+        long h2 = UrlFingerprint.fmix(h1 ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitsPerShard);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur;
+            while (((cur = shard.get(word)) & mask) == 0) {
+                if (shard.compareAndSet(word, cur, cur | mask)) break;
+            }
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(long fp) {
+        queries.increment();
+        AtomicLongArray shard = shardOf(fp);
+        long h1 = UrlFingerprint.fmix(fp);
+        long h2 = UrlFingerprint.fmix(h1 ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitsPerShard);
+            if ((shard.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                negatives.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AtomicLongArray shardOf(long fp) {
+        return shards.length == 1 ? shards[0] : shards[(int) (fp >>> shardShift)];
+    }
+
+    public long memoryBytes() {
+        return bitsPerShard / 8 * shards.length;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    /** Estimated false-positive rate at the current number of insertions. */
+    public double estimatedFpp() {
+        double m = (double) bitsPerShard * shards.length;
+        return Math.pow(1 - Math.exp(-hashes * insertions.sum() / m), hashes);
+    }
+
+    /** Share of lookups answered "definitely new" without touching the stores. */
+    public double negativeRate() {
+        long q = queries.sum();
+        return q == 0 ? 0 : (double) negatives.sum() / q;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bloom[memory=%dKB, k=%d, expected=%d, targetFpp=%.4f, inserted=%d, estFpp=%.4f, skipRate=%.3f]",
+                memoryBytes() / 1024, hashes, expectedItems, targetFpp, insertions(), estimatedFpp(), negativeRate());
+    }
+}
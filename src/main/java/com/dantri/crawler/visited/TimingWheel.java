@@ -0,0 +1,93 @@
+package com.dantri.crawler.visited;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Hierarchical timing wheel: {@code levels} wheels of 64 slots, level L slots
+ * spanning 64^L ticks. An entry is placed on the lowest level whose current
+ * block also contains its deadline and cascades down as time advances, so
+ * scheduling and expiring are O(1) regardless of how many entries are pending.
+ * <p>
+ * {@link #schedule} may be called from any thread; {@link #advance} from one
+ * thread only. Scheduling only queues the entry: the advancing thread places
+ * it at the start of its next advance, so placement never races a cascade and
+ * expiry is late by at most one advance interval, never early.
+ */
+class TimingWheel<T> {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+
+    private final long tickMs;
+    private final int levels;
+    private final ConcurrentLinkedQueue<Entry<T>>[][] buckets;
+    private final ConcurrentLinkedQueue<Entry<T>> incoming = new ConcurrentLinkedQueue<>();
+    private volatile long currentTick;
+
+    TimingWheel(long tickMs, int levels, long startMs) {
+        this.tickMs = tickMs;
+        this.levels = levels;
+        @SuppressWarnings("unchecked") // mảng generic: chỉ chứa queue do constructor này tạo
+        ConcurrentLinkedQueue<Entry<T>>[][] b = (ConcurrentLinkedQueue<Entry<T>>[][]) new ConcurrentLinkedQueue<?>[levels][SLOTS];
+        this.buckets = b;
+        for (int l = 0; l < levels; l++) {
+            for (int s = 0; s < SLOTS; s++) buckets[l][s] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    void schedule(T item, long deadlineMs) {
+        incoming.add(new Entry<>(item, deadlineMs));
+    }
+
+    /** Moves time to nowMs, handing every due entry to onExpire(item, deadlineMs). */
+    void advance(long nowMs, BiConsumer<T, Long> onExpire) {
+        long target = nowMs / tickMs;
+        Entry<T> in;
+        while ((in = incoming.poll()) != null) place(in, currentTick);
+        while (currentTick < target) {
+            long tick = currentTick + 1;
+            // Hạ các entry từ level cao xuống khi level thấp hơn quay hết vòng
+            for (int l = levels - 1; l >= 1; l--) {
+                if ((tick & ((1L << (BITS * l)) - 1)) == 0) {
+                    drain(buckets[l][(int) ((tick >>> (BITS * l)) & (SLOTS - 1))], tick, onExpire);
+                }
+            }
+            drain(buckets[0][(int) (tick & (SLOTS - 1))], tick, onExpire);
+            currentTick = tick;
+        }
+    }
+
+    private void drain(ConcurrentLinkedQueue<Entry<T>> bucket, long tick, BiConsumer<T, Long> onExpire) {
+        Entry<T> e;
+        int n = bucket.size();
+        // chỉ xử lý các entry có sẵn; entry mới thêm vào sẽ được xử lý vòng sau
+        while (n-- > 0 && (e = bucket.poll()) != null) {
+            if (e.deadlineMs / tickMs <= tick) {
+                onExpire.accept(e.item, e.deadlineMs);
+            } else {
+                place(e, tick);
+            }
+        }
+    }
+
+    private void place(Entry<T> e, long cur) {
+        long t = Math.max(e.deadlineMs / tickMs, cur + 1);
+        for (int l = 0; l < levels; l++) {
+            if (l == levels - 1 || (t >>> (BITS * (l + 1))) == (cur >>> (BITS * (l + 1)))) {
+                buckets[l][(int) ((t >>> (BITS * l)) & (SLOTS - 1))].add(e);
+                return;
+            }
+        }
+    }
+
+    int pending() {
+        int n = incoming.size();
+        for (ConcurrentLinkedQueue<Entry<T>>[] level : buckets) {
+            for (ConcurrentLinkedQueue<Entry<T>> b : level) n += b.size();
+        }
+        return n;
+    }
+
+    private record Entry<T>(T item, long deadlineMs) {}
+}
@@ -1,47 +1,112 @@
 package com.dantri.crawler.visited;
 
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.persist.GroupCommitWriter;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import com.dantri.crawler.url.UrlFingerprint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-public class VisitedUrlsManager {
+/**
+ * Visited article URLs, keyed by 64-bit fingerprint of the canonical URL.
+ * Backed by a memory-mapped {@link FingerprintTable} (data/visited_urls.fp),
+ * so each entry costs ~16 bytes on disk and in the page cache instead of a
+ * full String on the heap. Every fingerprint is also put into the shared
+ * {@link ShardedBloomFilter}.
+ * <p>
+ * Newly visited URLs are journaled to data/visited_urls.txt through the shared
+ * {@link GroupCommitWriter}. The table is the lookup structure; the journal is
+ * what it is rebuilt from (canonicalized) when the .fp file is missing or corrupt.
+ * If the table fills up at its max size, lookups fall back to the Bloom filter
+ * for URLs it could not store; the journal still records them.
+ */
+public class VisitedUrlsManager implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(VisitedUrlsManager.class);
-    private static final String FILE = "data/visited_urls.txt";
-    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+    private static final Path FILE = Paths.get("data/visited_urls.fp");
+    private static final Path JOURNAL_FILE = Paths.get("data/visited_urls.txt");
+    private final FingerprintTable table;
+    private final ShardedBloomFilter preFilter;
+    private final GroupCommitWriter.Log journal;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "visited-flush");
+        t.setDaemon(true);
+        return t;
+    });
 
-    public VisitedUrlsManager() {
-        load();
+    public VisitedUrlsManager(ShardedBloomFilter preFilter, GroupCommitWriter writer) throws IOException {
+        this.preFilter = preFilter;
+        table = FingerprintTable.open(FILE, ConfigLoader.getVisitedInitialCapacity());
+        if (table.size() == 0) rebuildFromJournal();
+        journal = writer.open(JOURNAL_FILE, 0);
+        table.forEach(preFilter::put);
+        log.info("Loaded {} visited article URLs", table.size());
+        flusher.scheduleWithFixedDelay(table::flush, 10, 10, TimeUnit.SECONDS);
     }
 
-    private void load() {
-        File f = new File(FILE);
-        if (!f.exists()) return;
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
+    private void rebuildFromJournal() {
+        if (!Files.exists(JOURNAL_FILE)) return;
+        UrlCanonicalizer canonicalizer = UrlCanonicalizer.fromConfig();
+        try (BufferedReader br = Files.newBufferedReader(JOURNAL_FILE, StandardCharsets.UTF_8)) {
             String line;
             while ((line = br.readLine()) != null) {
-                visited.add(line.trim());
+                String url = canonicalizer.canonicalize(line.trim());
+                if (url != null) table.add(UrlFingerprint.of(url));
             }
-            log.info("Loaded {} visited article URLs", visited.size());
+            table.flush();
+            log.info("Rebuilt {} fingerprints from {}", table.size(), JOURNAL_FILE);
         } catch (IOException e) {
-            log.warn("Failed to load visited_urls.txt", e);
+            log.warn("Failed to import {}", JOURNAL_FILE, e);
         }
     }
 
-    public synchronized void markVisited(String url) {
-        if (!visited.add(url)) {
-            return;
-        }
-        try (FileWriter fw = new FileWriter(FILE, true)) {
-            fw.append(url).append('\n');
+    /** Streams the URLs recorded in the journal, oldest first. */
+    public void forEachJournalUrl(Consumer<String> action) {
+        if (!Files.exists(JOURNAL_FILE)) return;
+        try (BufferedReader br = Files.newBufferedReader(JOURNAL_FILE, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isBlank()) action.accept(line.trim());
+            }
         } catch (IOException e) {
-            log.warn("Failed to write visited URL {}", url, e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void markVisited(String url) {
+        long fp = UrlFingerprint.of(url);
+        if (table.add(fp)) {
+            preFilter.put(fp);
+            journal.append(url);
         }
     }
 
     public boolean isVisited(String url) {
-        return visited.contains(url);
+        return isVisited(UrlFingerprint.of(url));
+    }
+
+    /** Lookup by precomputed {@link UrlFingerprint}. */
+    public boolean isVisited(long fp) {
+        if (table.contains(fp)) return true;
+        return table.isFull() && preFilter.mightContain(fp);
+    }
+
+    public long size() {
+        return table.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        table.close();
     }
 }
@@ -0,0 +1,46 @@
+package com.dantri.crawler.warc;
+
+import com.dantri.crawler.fetch.FetchResult;
+import com.dantri.crawler.fetch.Fetcher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Fetcher decorator that hands every complete response to a {@link WarcWriter}.
+ * Head-only results (body never downloaded) and 304s (no body) are not archived.
+ */
+public class ArchivingFetcher implements Fetcher {
+    private final Fetcher delegate;
+    private final WarcWriter warc;
+
+    public ArchivingFetcher(Fetcher delegate, WarcWriter warc) {
+        this.delegate = delegate;
+        this.warc = warc;
+    }
+
+    @Override
+    public CompletableFuture<FetchResult> fetchAsync(String url) {
+        return delegate.fetchAsync(url).thenApply(this::archive);
+    }
+
+    @Override
+    public FetchResult fetch(String url) {
+        return archive(delegate.fetch(url));
+    }
+
+    @Override
+    public FetchResult fetch(String url, String etag, String lastModified) {
+        return archive(delegate.fetch(url, etag, lastModified));
+    }
+
+    @Override
+    public FetchResult fetch(String url, Predicate<FetchResult> readBody) {
+        return archive(delegate.fetch(url, readBody));
+    }
+
+    private FetchResult archive(FetchResult page) {
+        if (page != null && !page.isHeadOnly() && page.getStatus() != 304) warc.submit(page);
+        return page;
+    }
+}
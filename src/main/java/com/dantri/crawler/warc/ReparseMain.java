@@ -0,0 +1,128 @@
+package com.dantri.crawler.warc;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.domain.Article;
+import com.dantri.crawler.fetch.FetchResult;
+import com.dantri.crawler.parser.HeadVerdict;
+import com.dantri.crawler.parser.UniversalArticleParser;
+import com.dantri.crawler.storage.ArticleStorage;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Batch re-extraction from WARC archives, without the network:
+ * <pre>
+ *   java -cp ... com.dantri.crawler.warc.ReparseMain [--out reparsed] [file-or-dir ...]
+ * </pre>
+ * Inputs default to warc.dir. Files are processed in parallel on all cores
+ * (one file per task; files roll at warc.maxBytes, so a month of crawling
+ * gives plenty of them) and articles go to an {@link ArticleStorage} rooted at
+ * --out, so the live data/ segments are left alone.
+ * <p>
+ * Each response goes through the worker's article path: head verdict, the
+ * extraction cascade, rel=canonical, and the six-month cut-off measured from
+ * the capture time rather than from today. A URL archived more than once is
+ * extracted once. Near-duplicate filtering is not applied.
+ */
+public final class ReparseMain {
+    private static final Logger log = LoggerFactory.getLogger(ReparseMain.class);
+
+    private final UniversalArticleParser parser = new UniversalArticleParser();
+    private final UrlCanonicalizer canonicalizer = UrlCanonicalizer.fromConfig();
+    private final long sixMonthsMillis = ConfigLoader.getSixMonthsMillis();
+    private final ArticleStorage storage;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder articles = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failedFiles = new LongAdder();
+
+    private ReparseMain(ArticleStorage storage) {
+        this.storage = storage;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = Path.of("reparsed");
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--out".equals(args[i])) out = Path.of(args[++i]);
+            else inputs.add(Path.of(args[i]));
+        }
+        if (inputs.isEmpty()) inputs.add(Path.of(ConfigLoader.getWarcDir()));
+        List<Path> files = warcFiles(inputs);
+
+        long started = System.nanoTime();
+        ArticleStorage storage = new ArticleStorage(out);
+        ReparseMain run = new ReparseMain(storage);
+        log.info("Reparsing {} WARC files into {} on {} cores", files.size(), out,
+                Runtime.getRuntime().availableProcessors());
+        files.parallelStream().forEach(run::reparse);
+        storage.close();
+
+        double secs = (System.nanoTime() - started) / 1e9;
+        String summary = String.format(Locale.ROOT,
+                "%d files, %d responses, %d articles, %d skipped, %d unreadable files in %.1fs (%.0f responses/s)",
+                files.size(), run.records.sum(), run.articles.sum(), run.skipped.sum(), run.failedFiles.sum(),
+                secs, run.records.sum() / Math.max(secs, 1e-9));
+        log.info("Reparse done: {}", summary);
+        System.out.println(summary);
+    }
+
+    private static List<Path> warcFiles(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path in : inputs) {
+            if (Files.isDirectory(in)) {
+                try (Stream<Path> s = Files.walk(in)) {
+                    s.filter(p -> p.getFileName().toString().endsWith(WarcWriter.SUFFIX)).sorted().forEach(files::add);
+                }
+            } else if (Files.isRegularFile(in)) {
+                files.add(in);
+            }
+        }
+        return files;
+    }
+
+    private void reparse(Path file) {
+        try (WarcReader reader = new WarcReader(file)) {
+            WarcReader.Response r;
+            while ((r = reader.next()) != null) {
+                records.increment();
+                if (!extract(r.page(), r.capturedAt().toEpochMilli())) skipped.increment();
+            }
+        } catch (Exception e) {
+            failedFiles.increment();
+            log.error("Cannot reparse {}", file, e);
+        }
+    }
+
+    /** Same decisions as CrawlWorker's article branch, with capturedAt standing in for "now". */
+    private boolean extract(FetchResult page, long capturedAt) {
+        if (!page.isOk() || page.getBody().length == 0 || !seen.add(page.getUrl())) return false;
+        long ageAtCapture = System.currentTimeMillis() - capturedAt;
+        HeadVerdict verdict = parser.inspectHead(page, sixMonthsMillis + ageAtCapture);
+        if (verdict.isSkip()) return false;
+        Article art = parser.parse(page);
+        if (art == null || art.getPublishTime() == null) return false;
+        if (capturedAt - art.getPublishTime().getTime() > sixMonthsMillis) return false;
+        String canonical = canonicalizer.fromDocument(page.getDocument(), page.getUrl());
+        if (canonical != null) {
+            if (!canonical.equals(page.getUrl()) && !seen.add(canonical)) return false;
+            art.setUrl(canonical);
+        }
+        storage.save(art);
+        articles.increment();
+        return true;
+    }
+}
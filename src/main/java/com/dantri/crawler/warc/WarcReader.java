@@ -0,0 +1,135 @@
+package com.dantri.crawler.warc;
+
+import com.dantri.crawler.fetch.FetchResult;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Streams the response records of a .warc.gz (or plain .warc) file back as
+ * {@link FetchResult}s, one record in memory at a time. Other record types
+ * are skipped; a file that ends in the middle of a record (crash while
+ * writing) simply ends there.
+ */
+public class WarcReader implements Closeable {
+    /** Extension field written when the response came from a redirect. */
+    static final String FINAL_URI = "X-Crawler-Final-URI";
+
+    /** A response and the time it was fetched. */
+    public record Response(FetchResult page, Instant capturedAt) {}
+
+    private final InputStream in;
+
+    public WarcReader(Path file) throws IOException {
+        InputStream raw = Files.newInputStream(file);
+        // GZIPInputStream đọc nối tiếp các gzip member, mỗi record một member
+        this.in = new BufferedInputStream(file.getFileName().toString().endsWith(".gz")
+                ? new GZIPInputStream(raw, 65536) : raw, 65536);
+    }
+
+    /** Next response record, or null at the end of the file. */
+    public Response next() throws IOException {
+        try {
+            while (true) {
+                String version = readLine();
+                if (version == null) return null;
+                if (version.isEmpty()) continue;
+                if (!version.startsWith("WARC/")) throw new IOException("Not a WARC record: " + version);
+                Map<String, String> fields = new LinkedHashMap<>();
+                String line;
+                while ((line = readLine()) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) fields.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            line.substring(colon + 1).trim());
+                }
+                long length = Long.parseLong(fields.getOrDefault("content-length", "0"));
+                byte[] block = in.readNBytes((int) length);
+                if (block.length < length) return null;
+                if (!"response".equals(fields.get("warc-type"))) continue;
+                String url = fields.get("warc-target-uri");
+                String finalUrl = fields.getOrDefault(FINAL_URI.toLowerCase(Locale.ROOT), url);
+                Instant date = fields.containsKey("warc-date") ? Instant.parse(fields.get("warc-date")) : Instant.EPOCH;
+                FetchResult page = parseHttp(url, finalUrl, block);
+                if (page != null) return new Response(page, date);
+            }
+        } catch (EOFException | ZipException truncated) {
+            return null;
+        }
+    }
+
+    /** Status line, headers and body of an HTTP response block; null if it is not one. */
+    static FetchResult parseHttp(String url, String finalUrl, byte[] block) {
+        int end = indexOf(block, new byte[]{'\r', '\n', '\r', '\n'});
+        if (end < 0) return null;
+        String[] lines = new String(block, 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+        String[] status = lines[0].split(" ", 3);
+        if (status.length < 2 || !status[0].startsWith("HTTP/")) return null;
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) continue;
+            String value = new String(lines[i].substring(colon + 1).trim().getBytes(StandardCharsets.ISO_8859_1),
+                    StandardCharsets.UTF_8);
+            headers.computeIfAbsent(lines[i].substring(0, colon).trim(), k -> new ArrayList<>()).add(value);
+        }
+        byte[] body = new byte[block.length - end - 4];
+        System.arraycopy(block, end + 4, body, 0, body.length);
+        String contentType = headers.entrySet().stream()
+                .filter(e -> e.getKey().equalsIgnoreCase("Content-Type"))
+                .map(e -> e.getValue().get(0)).findFirst().orElse(null);
+        return new FetchResult(url, finalUrl, Integer.parseInt(status[1]), headers, body, charsetOf(contentType));
+    }
+
+    private static String charsetOf(String contentType) {
+        if (contentType == null) return null;
+        int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (i < 0) return null;
+        String cs = contentType.substring(i + 8).split(";")[0].replace("\"", "").trim();
+        return cs.isEmpty() ? null : cs;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            for (int k = 0; k < pattern.length; k++) {
+                if (data[i + k] != pattern[k]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /** Line without its CRLF; null at end of stream. */
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') break;
+            line.write(b);
+        }
+        if (b < 0 && line.size() == 0) return null;
+        byte[] bytes = line.toByteArray();
+        int len = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
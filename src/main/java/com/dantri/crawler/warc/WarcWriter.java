@@ -0,0 +1,230 @@
+package com.dantri.crawler.warc;
+
+import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.fetch.FetchResult;
+import com.dantri.crawler.metrics.Counter;
+import com.dantri.crawler.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives raw fetched responses as WARC 1.1 "response" records on a dedicated
+ * writer thread. Every record is its own gzip member (the usual .warc.gz
+ * layout, readable by standard tools and by {@link WarcReader}). The body is
+ * stored as the crawler got it, i.e. after gzip/deflate decoding, with
+ * Content-Length rewritten to match.
+ * <p>
+ * Files are written as {@code <timestamp>_<seq>.warc.gz.open} and renamed to
+ * .warc.gz when they roll (maxBytes or maxAgeMs) or on close; .open files left
+ * by a crash are renamed on startup, a truncated last record is skipped by the
+ * reader. The queue is bounded: when the disk cannot keep up, responses are
+ * dropped (and counted) rather than slowing the workers down.
+ */
+public class WarcWriter implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(WarcWriter.class);
+    private static final DateTimeFormatter TS_FMT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmssSSS");
+    static final String SUFFIX = ".warc.gz";
+    private static final String OPEN_SUFFIX = ".open";
+    private static final Counter RECORDS = Metrics.counter("crawler_warc_records_total",
+            "Responses archived to WARC");
+    private static final Counter DROPPED = Metrics.counter("crawler_warc_dropped_total",
+            "Responses not archived because the WARC queue was full");
+    private static final Counter BYTES = Metrics.counter("crawler_warc_bytes_total",
+            "Compressed WARC bytes written");
+
+    private final Path dir;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final LinkedBlockingQueue<Capture> queue;
+    private final AtomicLong seq = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private Path current;
+    private OutputStream out;
+    private long bytes;
+    private long openedAt;
+
+    public WarcWriter(Path dir, long maxBytes, long maxAgeMs, int queueCapacity) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        recoverOpenFiles();
+        this.writer = new Thread(this::run, "warc-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static WarcWriter fromConfig() throws IOException {
+        return new WarcWriter(Paths.get(ConfigLoader.getWarcDir()), ConfigLoader.getWarcMaxBytes(),
+                ConfigLoader.getWarcMaxAgeMs(), ConfigLoader.getWarcQueueCapacity());
+    }
+
+    /** Queues a response for archiving; never blocks. */
+    public void submit(FetchResult page) {
+        if (!queue.offer(new Capture(page, Instant.now()))) DROPPED.inc();
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Capture c = queue.poll(1, TimeUnit.SECONDS);
+                if (c != null) write(c);
+                if (out != null && (bytes >= maxBytes || System.currentTimeMillis() - openedAt >= maxAgeMs)) roll();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                log.error("WARC write failed in {}", current, e);
+            }
+        }
+        try {
+            if (out != null) roll();
+        } catch (IOException e) {
+            log.error("Error closing WARC file {}", current, e);
+        }
+    }
+
+    private void write(Capture c) throws IOException {
+        if (out == null) open();
+        byte[] member = gzip(record(c));
+        out.write(member);
+        out.flush();
+        bytes += member.length;
+        RECORDS.inc();
+        BYTES.add(member.length);
+    }
+
+    private void open() throws IOException {
+        String name = TS_FMT.format(LocalDateTime.now()) + "_" + String.format("%06d", seq.incrementAndGet());
+        current = dir.resolve(name + SUFFIX + OPEN_SUFFIX);
+        out = new BufferedOutputStream(Files.newOutputStream(current));
+        openedAt = System.currentTimeMillis();
+        bytes = 0;
+        byte[] info = gzip(warcinfo(name + SUFFIX));
+        out.write(info);
+        bytes += info.length;
+        log.info("Opened WARC file {}", current);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        out = null;
+        String name = current.getFileName().toString();
+        Path done = current.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length()));
+        Files.move(current, done);
+        log.info("Closed WARC file {} ({} bytes)", done, bytes);
+    }
+
+    private void recoverOpenFiles() throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*" + SUFFIX + OPEN_SUFFIX)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                Files.move(p, p.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length())));
+                log.warn("Recovered unfinished WARC file {}", p);
+            }
+        }
+    }
+
+    private static byte[] warcinfo(String filename) {
+        byte[] block = ("software: multi-layer-crawler\r\nformat: WARC File Format 1.1\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        String head = "WARC/1.1\r\n"
+                + "WARC-Type: warcinfo\r\n"
+                + "WARC-Record-ID: <urn:uuid:" + UUID.randomUUID() + ">\r\n"
+                + "WARC-Date: " + Instant.now().truncatedTo(ChronoUnit.SECONDS) + "\r\n"
+                + "WARC-Filename: " + filename + "\r\n"
+                + "Content-Type: application/warc-fields\r\n"
+                + "Content-Length: " + block.length + "\r\n\r\n";
+        return concat(head, block);
+    }
+
+    /** WARC response record: WARC headers, then the HTTP status line, headers and body as the block. */
+    static byte[] record(Capture c) {
+        FetchResult page = c.page();
+        StringBuilder http = new StringBuilder();
+        http.append("HTTP/1.1 ").append(page.getStatus()).append(page.getStatus() == 200 ? " OK" : " ").append("\r\n");
+        for (Map.Entry<String, List<String>> e : page.getHeaders().entrySet()) {
+            String name = e.getKey();
+            if (name == null || name.startsWith(":") || name.equalsIgnoreCase("Content-Length")
+                    || name.equalsIgnoreCase("Content-Encoding") || name.equalsIgnoreCase("Transfer-Encoding")) {
+                continue;
+            }
+            for (String v : e.getValue()) http.append(name).append(": ").append(oneLine(v)).append("\r\n");
+        }
+        http.append("Content-Length: ").append(page.getBody().length).append("\r\n\r\n");
+        byte[] httpHead = http.toString().getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder warc = new StringBuilder("WARC/1.1\r\n")
+                .append("WARC-Type: response\r\n")
+                .append("WARC-Record-ID: <urn:uuid:").append(UUID.randomUUID()).append(">\r\n")
+                .append("WARC-Date: ").append(c.capturedAt().truncatedTo(ChronoUnit.SECONDS)).append("\r\n")
+                .append("WARC-Target-URI: ").append(page.getUrl()).append("\r\n");
+        if (!page.getFinalUrl().equals(page.getUrl())) {
+            warc.append(WarcReader.FINAL_URI).append(": ").append(page.getFinalUrl()).append("\r\n");
+        }
+        warc.append("Content-Type: application/http;msgtype=response\r\n")
+                .append("Content-Length: ").append(httpHead.length + page.getBody().length).append("\r\n\r\n");
+
+        ByteArrayOutputStream rec = new ByteArrayOutputStream(httpHead.length + page.getBody().length + 512);
+        rec.writeBytes(warc.toString().getBytes(StandardCharsets.UTF_8));
+        rec.writeBytes(httpHead);
+        rec.writeBytes(page.getBody());
+        rec.writeBytes(new byte[]{'\r', '\n', '\r', '\n'});
+        return rec.toByteArray();
+    }
+
+    private static String oneLine(String v) {
+        return v.indexOf('\r') < 0 && v.indexOf('\n') < 0 ? v : v.replaceAll("[\r\n]+", " ");
+    }
+
+    private static byte[] concat(String head, byte[] block) {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        b.writeBytes(head.getBytes(StandardCharsets.UTF_8));
+        b.writeBytes(block);
+        b.writeBytes(new byte[]{'\r', '\n', '\r', '\n'});
+        return b.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length / 3 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+            gz.write(data);
+        }
+        return buf.toByteArray();
+    }
+
+    /** Writes everything queued so far and closes the current file. */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    record Capture(FetchResult page, Instant capturedAt) {}
+}
@@ -1,54 +1,92 @@
 package com.dantri.crawler.worker;
 
+import com.dantri.crawler.classify.UrlShapeClassifier;
 import com.dantri.crawler.config.ConfigLoader;
+import com.dantri.crawler.dedup.NearDuplicateDetector;
 import com.dantri.crawler.domain.Article;
+import com.dantri.crawler.fetch.FetchResult;
+import com.dantri.crawler.fetch.Fetcher;
+import com.dantri.crawler.fetch.ValidatorCache;
+import com.dantri.crawler.metrics.Counter;
+import com.dantri.crawler.metrics.Metrics;
+import com.dantri.crawler.parser.HeadVerdict;
 import com.dantri.crawler.parser.UniversalArticleParser;
 import com.dantri.crawler.queue.CrawlQueueManager;
 import com.dantri.crawler.queue.UrlTask;
+import com.dantri.crawler.scheduler.HubScheduler;
 import com.dantri.crawler.storage.ArticleStorage;
+import com.dantri.crawler.url.UrlCanonicalizer;
+import com.dantri.crawler.url.UrlFingerprint;
+import com.dantri.crawler.visited.ShardedBloomFilter;
 import com.dantri.crawler.visited.VisitedUrlsManager;
 import com.dantri.crawler.visited.NonArticleStore;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CrawlWorker implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(CrawlWorker.class);
 
     private static final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    private static final StagedExtractionStats STATS = new StagedExtractionStats();
+    private static final Counter KNOWN = Metrics.counter("crawler_known_lookups_total",
+            "Visited / non-article lookups by outcome; prefilter_miss never touches the stores", "result");
+    private static final LongAdder K_MISS = KNOWN.labels("prefilter_miss");
+    private static final LongAdder K_VISITED = KNOWN.labels("visited");
+    private static final LongAdder K_NON_ARTICLE = KNOWN.labels("non_article");
+    private static final LongAdder K_UNKNOWN = KNOWN.labels("unknown");
 
     private final CrawlQueueManager queue;
+    private final Fetcher fetcher;
     private final VisitedUrlsManager visited;
     private final NonArticleStore nonArticleStore;
+    private final ShardedBloomFilter preFilter;
     private final UniversalArticleParser parser;
     private final ArticleStorage storage;
+    private final NearDuplicateDetector nearDup;
+    private final UrlCanonicalizer canonicalizer;
+    private final UrlShapeClassifier classifier;
+    private final ValidatorCache validators;
+    private final HubScheduler hubs;
     private final int maxLevel;
     private final AtomicBoolean running;
-    private final List<String> seeds;
     private final long sixMonthsMillis = ConfigLoader.getSixMonthsMillis();
+    private final boolean headFirst = ConfigLoader.isHeadFirstEnabled();
 
     public CrawlWorker(CrawlQueueManager queue,
+                       Fetcher fetcher,
                        VisitedUrlsManager visited,
                        NonArticleStore nonArticleStore,
+                       ShardedBloomFilter preFilter,
                        UniversalArticleParser parser,
                        ArticleStorage storage,
+                       NearDuplicateDetector nearDup,
+                       UrlCanonicalizer canonicalizer,
+                       UrlShapeClassifier classifier,
+                       ValidatorCache validators,
+                       HubScheduler hubs,
                        int maxLevel,
                        AtomicBoolean running) {
         this.queue = queue;
+        this.fetcher = fetcher;
         this.visited = visited;
         this.nonArticleStore = nonArticleStore;
+        this.preFilter = preFilter;
         this.parser = parser;
         this.storage = storage;
+        this.nearDup = nearDup;
+        this.canonicalizer = canonicalizer;
+        this.classifier = classifier;
+        this.validators = validators;
+        this.hubs = hubs;
         this.maxLevel = maxLevel;
         this.running = running;
-        this.seeds = ConfigLoader.getStartUrls();
     }
 
     @Override
@@ -57,82 +95,221 @@ public class CrawlWorker implements Runnable {
         while (running.get()) {
             UrlTask task = queue.takeTask();
             if (task == null) continue;
+            process(task);
+        }
+    }
+
+    /**
+     * Crawls a single task. Safe to call concurrently, so one instance can be
+     * shared by many virtual threads.
+     */
+    public void process(UrlTask task) {
+        try {
+            crawl(task);
+        } finally {
+            queue.taskDone(task);
+        }
+    }
 
-            String url   = task.getUrl();
-            int level    = task.getLevel();
+    private void crawl(UrlTask task) {
+        String url   = task.getUrl();
+        int level    = task.getLevel();
 
-            // Seed URLs: chỉ extract links, không mark visited/non-article
-            if (seeds.contains(url)) {
-                if (level < maxLevel) extractAndQueueLinks(url, level + 1);
-                continue;
-            }
+        // Seeds và hub đã biết: chỉ extract links, không mark visited/non-article
+        if (hubs.isHub(url)) {
+            crawlHub(url, level);
+            return;
+        }
 
-            // Article visited check
-            if (visited.isVisited(url)) {
-                continue;
-            }
-            // Non-article check
-            if (nonArticleStore.isNonArticle(url)) {
-                continue;
+        // Article visited / non-article check
+        if (isKnown(url)) {
+            return;
+        }
+        if (!inProgress.add(url)) {
+            return;
+        }
+
+        try {
+            // URL có dạng trang chuyên mục: chỉ lấy links, không chạy cascade.
+            // Chỉ là dự đoán: không đăng ký hub, không ghi vào NonArticleStore (store chỉ giữ kết quả đã parse)
+            double predicted = classifier.articleProbability(url);
+            if (classifier.shouldTreatAsHub(predicted)) {
+                classifier.recordHubRouted();
+                crawlRouted(url, level);
+                return;
             }
-            if (!inProgress.add(url)) {
-                continue;
+
+            // Fetch 1 lần, dùng chung cho parse và lấy outlinks
+            HeadVerdict[] verdict = {null};
+            FetchResult page;
+            if (validators.contains(url)) {
+                // Hub đã biết: GET có điều kiện, không đổi thì không còn gì để làm
+                page = validators.fetch(fetcher, url);
+                if (page == null) return;
+            } else {
+                page = fetch(url, level, verdict);
             }
+            boolean isArticle = false;
+            String canonical = declaredCanonical(page, url);
 
-            try {
-                Article art = parser.parseUrl(url);
+            if (canonical != null && visited.isVisited(canonical)) {
+                // Bài đã lưu dưới URL canonical
+                visited.markVisited(url);
+            } else if (verdict[0] != null && verdict[0].isSkip()) {
+                // Head đã đủ để kết luận: bỏ qua cascade trích xuất
+                boolean tooOld = verdict[0].kind() == HeadVerdict.Kind.TOO_OLD;
+                STATS.recordSkipped(tooOld);
+                classifier.record(url, predicted, tooOld);
+                if (tooOld) {
+                    visited.markVisited(url);
+                    if (canonical != null) visited.markVisited(canonical);
+                } else {
+                    nonArticleStore.markNonArticle(url);
+                }
+            } else {
+                long started = System.nanoTime();
+                Article art = parser.parse(page);
+                STATS.recordCascade(System.nanoTime() - started);
 
                 // Lấy được thống tin --> là Article
                 // Không lấy được --> là Non-article
 
                 // Kiểm tra article lấy được publishTime?
-                if (art != null && art.getPublishTime() != null) {
+                isArticle = art != null && art.getPublishTime() != null;
+                if (page != null && page.isOk()) classifier.record(url, predicted, isArticle);
+                if (isArticle) {
+                    if (canonical != null) art.setUrl(canonical);
                     long age = System.currentTimeMillis() - art.getPublishTime().getTime();
                     if (age <= sixMonthsMillis) { // Lọc 6 tháng
-                        storage.save(art);
+                        saveUnlessDuplicate(art);
                     }
                     visited.markVisited(url);
+                    if (canonical != null) visited.markVisited(canonical);
                 } else {
                     // Đánh dấu non-article với TTL
                     nonArticleStore.markNonArticle(url);
                 }
+            }
 
-                // Lấy outlinks
-                if (level < maxLevel) {
-                    extractAndQueueLinks(url, level + 1);
+            // Lấy outlinks
+            if (level < maxLevel && page != null && page.isOk() && !page.isHeadOnly()) {
+                List<String> links = extractAndQueueLinks(page, level + 1);
+                if (!isArticle) {
+                    // Trang chuyên mục: nếu thành hub thì lần sau lấy bằng conditional GET, theo lịch của HubScheduler
+                    if (hubs.observe(url, level, links)) validators.remember(page);
                 }
-            } finally {
-                // Trả khóa
-                inProgress.remove(url);
             }
+        } finally {
+            // Trả khóa
+            inProgress.remove(url);
         }
     }
 
-    private void extractAndQueueLinks(String pageUrl, int nextLevel) {
+    /**
+     * Stage one of extraction. With headFirst enabled the head is classified
+     * before the body is read; on a leaf page (no links to follow) a page that
+     * is clearly not an article, or too old, is not downloaded any further.
+     */
+    private FetchResult fetch(String url, int level, HeadVerdict[] verdict) {
+        if (!headFirst) return fetcher.fetch(url);
+        boolean leaf = level >= maxLevel;
+        FetchResult page = fetcher.fetch(url, head -> {
+            verdict[0] = parser.inspectHead(head, sixMonthsMillis);
+            return !(leaf && verdict[0].isSkip());
+        });
+        if (page != null && page.isHeadOnly()) STATS.recordHeadOnly(page.getBytesSkipped());
+        return page;
+    }
+
+    public static StagedExtractionStats stagedStats() {
+        return STATS;
+    }
+
+    /** Stores the article unless it is a near-copy of one already stored (nearDup.action). */
+    private void saveUnlessDuplicate(Article art) {
+        String original = nearDup.check(art);
+        if (original == null) {
+            storage.save(art);
+        } else if (nearDup.linksDuplicates()) {
+            art.setDuplicateOf(original);
+            storage.save(art);
+        } else {
+            log.info("Skip near-duplicate: {} ~ {}", art.getUrl(), original);
+        }
+    }
+
+    /** Visited or non-article; the Bloom pre-filter answers most new URLs without touching either store. */
+    private boolean isKnown(String url) {
+        long fp = UrlFingerprint.of(url);
+        if (!preFilter.mightContain(fp)) {
+            K_MISS.increment();
+            return false;
+        }
+        if (visited.isVisited(fp)) {
+            K_VISITED.increment();
+            return true;
+        }
+        if (nonArticleStore.isNonArticle(url)) {
+            K_NON_ARTICLE.increment();
+            return true;
+        }
+        K_UNKNOWN.increment();
+        return false;
+    }
+
+    /** rel=canonical of the page when it differs from the fetched URL, else null. */
+    private String declaredCanonical(FetchResult page, String url) {
+        if (page == null || !page.isOk()) return null;
+        String c = canonicalizer.fromDocument(page.getDocument(), url);
+        return c == null || c.equals(url) ? null : c;
+    }
+
+    /** Links only, through the validator cache; the visit is reported to the hub scheduler. */
+    private void crawlHub(String url, int level) {
+        if (level >= maxLevel) return;
+        FetchResult page = validators.fetch(fetcher, url);
+        // null: 304 / body không đổi (hoặc lỗi mạng) --> không có link mới
+        List<String> links = page != null && page.isOk() ? extractAndQueueLinks(page, level + 1) : null;
+        hubs.observe(url, level, links);
+    }
+
+    /**
+     * Links only for a URL the classifier predicted to be a hub. Nothing is
+     * recorded for it: FrontierDedup already keeps it out of the frontier for
+     * the rest of the cycle.
+     */
+    private void crawlRouted(String url, int level) {
+        if (level >= maxLevel) return;
+        FetchResult page = fetcher.fetch(url);
+        if (page != null && page.isOk()) extractAndQueueLinks(page, level + 1);
+    }
+
+    /** Queues unknown same-host links; returns every same-host link found on the page. */
+    private List<String> extractAndQueueLinks(FetchResult page, int nextLevel) {
+        String pageUrl = page.getUrl();
+        List<String> found = new ArrayList<>();
         try {
-            Document doc = Jsoup.connect(pageUrl)
-                    .userAgent("Mozilla/5.0")
-                    .timeout(8000)
-                    .get();
-            String baseDomain = new URI(pageUrl).getHost();
-
-            doc.select("a[href]").forEach(e -> {
-                String href = e.absUrl("href").split("#")[0];
-                if (href.isBlank()) return;
-                try {
-                    if (!new URI(href).getHost().equals(baseDomain)) return;
-                } catch (Exception ignored) {}
-
-                // Đẩy các outlinks tìm được vào queue
-                if (!visited.isVisited(href)
-                        && !nonArticleStore.isNonArticle(href)
-                        && inProgress.add(href)) {
-                    queue.pushTask(new UrlTask(href, nextLevel));
-                    inProgress.remove(href);
+            // Host sau redirect: links trên trang thuộc host đó, không phải host của URL đã xin
+            String finalUrl = canonicalizer.canonicalize(page.getFinalUrl());
+            String baseDomain = UrlCanonicalizer.hostOf(finalUrl != null ? finalUrl : pageUrl);
+            List<UrlTask> links = new ArrayList<>();
+
+            page.getDocument().select("a[href]").forEach(e -> {
+                String href = canonicalizer.canonicalize(e.absUrl("href"));
+                if (href == null || !baseDomain.equals(UrlCanonicalizer.hostOf(href))) return;
+                found.add(href);
+
+                // Seed/hub đã có lịch riêng trong HubScheduler, không đẩy lại theo link
+                if (!hubs.isHub(href) && !isKnown(href)) {
+                    // Xác suất là bài viết góp vào điểm ưu tiên trong frontier
+                    links.add(new UrlTask(href, nextLevel, classifier.articleProbability(href)));
                 }
             });
+            // Đẩy các outlinks tìm được vào queue một lượt (mỗi URL 1 lần / cycle)
+            if (!links.isEmpty()) queue.pushAllIfUnseen(links);
         } catch (Exception ex) {
             log.debug("Error extracting links from {}: {}", pageUrl, ex.getMessage());
         }
+        return found;
     }
 }
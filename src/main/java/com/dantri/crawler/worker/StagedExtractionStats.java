@@ -0,0 +1,66 @@
+package com.dantri.crawler.worker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Savings from head-first extraction: pages whose body was never downloaded,
+ * the wire bytes that were left unread (known only when the server sent a
+ * Content-Length) and extraction cascades skipped. CPU saved is estimated as
+ * skipped cascades times the average measured cascade time.
+ */
+public class StagedExtractionStats {
+    private final LongAdder headOnlyPages = new LongAdder();
+    private final LongAdder bytesSkipped = new LongAdder();
+    private final LongAdder cascadesRun = new LongAdder();
+    private final LongAdder cascadeNanos = new LongAdder();
+    private final LongAdder skippedNotArticle = new LongAdder();
+    private final LongAdder skippedTooOld = new LongAdder();
+    private final LongAdder unknownLength = new LongAdder();
+
+    void recordHeadOnly(long skipped) {
+        headOnlyPages.increment();
+        if (skipped >= 0) bytesSkipped.add(skipped);
+        else unknownLength.increment();
+    }
+
+    void recordCascade(long nanos) {
+        cascadesRun.increment();
+        cascadeNanos.add(nanos);
+    }
+
+    void recordSkipped(boolean tooOld) {
+        if (tooOld) skippedTooOld.increment();
+        else skippedNotArticle.increment();
+    }
+
+    public long getHeadOnlyPages() {
+        return headOnlyPages.sum();
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped.sum();
+    }
+
+    public long getCascadesSkipped() {
+        return skippedNotArticle.sum() + skippedTooOld.sum();
+    }
+
+    public long getCascadesRun() {
+        return cascadesRun.sum();
+    }
+
+    /** Estimated extraction CPU time saved, in milliseconds. */
+    public long getCpuSavedMs() {
+        long runs = cascadesRun.sum();
+        if (runs == 0) return 0;
+        return cascadeNanos.sum() / runs * getCascadesSkipped() / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("headOnly=%d (bytesSkipped>=%d, %d without length), cascadesSkipped=%d "
+                        + "(notArticle=%d, tooOld=%d), cascadesRun=%d, cpuSaved~%dms",
+                getHeadOnlyPages(), getBytesSkipped(), unknownLength.sum(), getCascadesSkipped(),
+                skippedNotArticle.sum(), skippedTooOld.sum(), getCascadesRun(), getCpuSavedMs());
+    }
+}
@@ -0,0 +1,77 @@
+package com.dantri.crawler.worker;
+
+import com.dantri.crawler.queue.CrawlQueueManager;
+import com.dantri.crawler.queue.UrlTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs every {@link UrlTask} on its own virtual thread.
+ * A single dispatcher pulls from the queue while holding one of
+ * {@code maxInFlight} permits; per-host limits are enforced by the queue itself.
+ */
+public class VirtualWorkerPool {
+    private static final Logger log = LoggerFactory.getLogger(VirtualWorkerPool.class);
+
+    private final CrawlQueueManager queue;
+    private final CrawlWorker worker;
+    private final AtomicBoolean running;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("VWorker-", 0).factory());
+    private Thread dispatcher;
+
+    public VirtualWorkerPool(CrawlQueueManager queue, CrawlWorker worker, int maxInFlight, AtomicBoolean running) {
+        this.queue = queue;
+        this.worker = worker;
+        this.running = running;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public void start() {
+        dispatcher = Thread.ofPlatform().name("Dispatcher").start(this::dispatch);
+        log.info("Virtual worker pool started, maxInFlight = {}", permits.availablePermits());
+    }
+
+    private void dispatch() {
+        while (running.get()) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            UrlTask task = queue.takeTask();
+            if (task == null) {
+                permits.release();
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    worker.process(task);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops dispatching and waits up to timeoutMs for running tasks to finish;
+     * false if some are still running.
+     */
+    public boolean shutdown(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher.join(timeoutMs);
+        }
+        executor.shutdown();
+        return executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,102 @@
+package com.dantri.crawler.storage;
+
+import com.dantri.crawler.domain.Article;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many workers saving at once: every article must come back exactly once,
+ * from a segment with a unique name, in its domain/yyyy/MM directory.
+ */
+class ArticleStorageConcurrencyTest {
+    private static final int THREADS = 96;
+    private static final int PER_THREAD = 500;
+    private static final String[] DOMAINS = {"dantri.com.vn", "vnexpress.net", "tuoitre.vn", "thanhnien.vn"};
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentSavesKeepNamesUrlsAndDirectoriesApart() throws Exception {
+        // Segment nhỏ để roll liên tục trong lúc các thread cùng ghi
+        ArticleStorage storage = new ArticleStorage(dir, 16 * 1024);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            done.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < PER_THREAD; i++) storage.save(article(thread, i));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : done) f.get();
+        pool.shutdown();
+        storage.close();
+
+        List<Path> segments;
+        try (Stream<Path> s = Files.walk(dir)) {
+            segments = s.filter(p -> p.getFileName().toString().matches(".*\\.jsonl(\\.gz)?")).toList();
+        }
+        Set<String> names = new HashSet<>();
+        for (Path seg : segments) {
+            assertTrue(names.add(seg.getFileName().toString()), "duplicate segment name " + seg);
+        }
+        assertTrue(segments.size() > DOMAINS.length * 12, "segments should have rolled, got " + segments.size());
+
+        Set<String> urls = new HashSet<>();
+        for (Path seg : segments) {
+            Path rel = dir.relativize(seg.getParent());
+            SegmentReader.forEach(seg, a -> {
+                assertTrue(urls.add(a.getUrl()), "article stored twice: " + a.getUrl());
+                ZonedDateTime t = a.getPublishTime().toInstant().atZone(ZONE);
+                Path expected = Path.of(a.getUrl().split("/")[2],
+                        String.format("%04d", t.getYear()), String.format("%02d", t.getMonthValue()));
+                assertEquals(expected, rel, a.getUrl());
+            });
+            // Index phải trỏ đúng vào bài trong segment
+            SegmentReader.readIndex(seg).forEach((url, e) -> {
+                try {
+                    assertEquals(url, SegmentReader.read(e).getUrl());
+                } catch (Exception ex) {
+                    throw new AssertionError(ex);
+                }
+            });
+        }
+        assertEquals(THREADS * PER_THREAD, urls.size());
+    }
+
+    private static Article article(int thread, int i) {
+        String domain = DOMAINS[(thread + i) % DOMAINS.length];
+        Article a = new Article();
+        a.setUrl("https://" + domain + "/thoi-su/bai-" + thread + "-" + i + ".htm");
+        a.setTitle("Bài " + thread + "/" + i);
+        a.setContent("Nội dung ".repeat(20));
+        a.setParseLayer("JSON-LD");
+        // Trải đều 12 tháng để mỗi domain có nhiều thư mục tháng
+        ZonedDateTime t = ZonedDateTime.of(2026, 1 + (i % 12), 1 + (thread % 28), 8, 30, 0, 0, ZONE);
+        a.setPublishTime(Date.from(t.toInstant()));
+        return a;
+    }
+}